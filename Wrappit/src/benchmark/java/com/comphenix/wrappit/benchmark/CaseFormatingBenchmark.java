@@ -0,0 +1,95 @@
+/*
+  Copyright (C) dmulloy2 <http://dmulloy2.net>
+  Copyright (C) Kristian S. Strangeland
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in
+  all copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+  THE SOFTWARE.
+ */
+package com.comphenix.wrappit.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.comphenix.wrappit.utils.CaseFormating;
+
+/**
+ * Converts the field names of the wiki to camel case, as the generator does for every accessor.
+ * <p>
+ * Compares the scanner, with and without its cache, against the original regular expression.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CaseFormatingBenchmark {
+	private List<String> names;
+
+	@Setup
+	public void readNames() throws IOException {
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+				getClass().getResourceAsStream("/wiki-field-names.txt"), StandardCharsets.UTF_8))) {
+			names = reader.lines().filter(line -> !line.isEmpty()).collect(Collectors.toList());
+		}
+	}
+
+	@Benchmark
+	public void cached(Blackhole blackhole) {
+		for (String name : names) {
+			blackhole.consume(CaseFormating.toCamelCase(name));
+		}
+	}
+
+	@Benchmark
+	public void scanned(Blackhole blackhole) {
+		for (String name : names) {
+			blackhole.consume(CaseFormating.toCamelCase(name, ""));
+		}
+	}
+
+	@Benchmark
+	public void split(Blackhole blackhole) {
+		for (String name : names) {
+			StringBuilder output = new StringBuilder();
+
+			for (String word : name.split("\\W+")) {
+				output.append(word.substring(0, 1).toUpperCase());
+				output.append(word.substring(1).toLowerCase());
+			}
+			blackhole.consume(output.toString());
+		}
+	}
+}
@@ -0,0 +1,84 @@
+/*
+  Copyright (C) dmulloy2 <http://dmulloy2.net>
+  Copyright (C) Kristian S. Strangeland
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in
+  all copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+  THE SOFTWARE.
+ */
+package com.comphenix.wrappit.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.comphenix.protocol.reflect.StructureModifier;
+import com.comphenix.protocol.reflect.accessors.Accessors;
+import com.comphenix.protocol.reflect.accessors.FieldAccessor;
+
+/**
+ * Compares the accessors generated with CACHED_INDICES: a copy of the cached structure modifier per call,
+ * as before, against the field accessor that is now resolved once.
+ * <p>
+ * A plain class stands in for the packet, so no server is needed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FieldAccessBenchmark {
+	public static class Packet {
+		private int entityId = 1000;
+		private int data = 2000;
+	}
+
+	private static final StructureModifier<Integer> INTEGERS = new StructureModifier<>(Packet.class, null, false).withType(int.class);
+	private static final int DATA_INDEX = 1;
+	private static final FieldAccessor DATA_ACCESSOR = Accessors.getFieldAccessor(INTEGERS.getField(DATA_INDEX), true);
+
+	private final Packet packet = new Packet();
+
+	@Benchmark
+	public int readModifier() {
+		return INTEGERS.withTarget(packet).read(DATA_INDEX);
+	}
+
+	@Benchmark
+	public int readAccessor() {
+		return (Integer) DATA_ACCESSOR.get(packet);
+	}
+
+	@Benchmark
+	public void writeModifier() {
+		INTEGERS.withTarget(packet).write(DATA_INDEX, 100);
+	}
+
+	@Benchmark
+	public void writeAccessor() {
+		DATA_ACCESSOR.set(packet, (Integer) 100);
+	}
+}
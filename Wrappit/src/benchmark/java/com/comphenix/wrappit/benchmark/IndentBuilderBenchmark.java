@@ -0,0 +1,89 @@
+/*
+  Copyright (C) dmulloy2 <http://dmulloy2.net>
+  Copyright (C) Kristian S. Strangeland
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in
+  all copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+  THE SOFTWARE.
+ */
+package com.comphenix.wrappit.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.comphenix.wrappit.utils.IndentBuilder;
+import com.comphenix.wrappit.utils.ReferenceIndentBuilder;
+
+/**
+ * Compares the line based IndentBuilder with the original, which copied one character at a time,
+ * by writing the accessors of a wrapper with a few dozen fields.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IndentBuilderBenchmark {
+	private static final int FIELDS = 40;
+
+	private final StringBuilder output = new StringBuilder(64 * 1024);
+
+	@Benchmark
+	public int lines() throws IOException {
+		output.setLength(0);
+		IndentBuilder indent = new IndentBuilder(output, 1);
+
+		for (int i = 0; i < FIELDS; i++) {
+			indent.appendLine("/**");
+			indent.appendLine(" * Retrieve Field " + i + ".");
+			indent.appendLine(" * @return The current Field " + i);
+			indent.appendLine(" */");
+			indent.appendLine("public int getField" + i + "() {");
+			indent.incrementIndent().appendLine("return handle.getIntegers().read(" + i + ");");
+			indent.appendLine("}" + IndentBuilder.NEWLN);
+		}
+		return output.length();
+	}
+
+	@Benchmark
+	public int characters() throws IOException {
+		output.setLength(0);
+		ReferenceIndentBuilder indent = new ReferenceIndentBuilder(output, 1);
+
+		for (int i = 0; i < FIELDS; i++) {
+			indent.appendLine("/**");
+			indent.appendLine(" * Retrieve Field " + i + ".");
+			indent.appendLine(" * @return The current Field " + i);
+			indent.appendLine(" */");
+			indent.appendLine("public int getField" + i + "() {");
+			indent.incrementIndent().appendLine("return handle.getIntegers().read(" + i + ");");
+			indent.appendLine("}" + IndentBuilder.NEWLN);
+		}
+		return output.length();
+	}
+}
@@ -25,11 +25,13 @@ package com.comphenix.wrappit;
 import com.comphenix.protocol.PacketType;
 import com.comphenix.wrappit.minecraft.CodePacketInfo;
 import com.comphenix.wrappit.minecraft.CodePacketReader;
+import com.comphenix.wrappit.minecraft.WireType;
 import com.comphenix.wrappit.utils.CaseFormating;
 import com.comphenix.wrappit.utils.IndentBuilder;
 import com.comphenix.wrappit.wiki.WikiPacketField;
 import com.comphenix.wrappit.wiki.WikiPacketInfo;
 import com.comphenix.wrappit.wiki.WikiPacketReader;
+import com.comphenix.wrappit.wiki.WikiTypeNormalizer;
 import com.mojang.authlib.GameProfile;
 import com.mojang.brigadier.suggestion.Suggestions;
 import com.mojang.brigadier.tree.RootCommandNode;
@@ -39,9 +41,12 @@ import org.bukkit.WorldType;
 
 import java.io.IOException;
 import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.security.PublicKey;
 import java.util.*;
 
+import javax.lang.model.SourceVersion;
+
 
 public class WrapperGenerator {
 	public enum Modifiers {
@@ -108,26 +113,77 @@ public class WrapperGenerator {
 		WORLD_BORDER_ACTION( PacketPlayOutWorldBorder.EnumWorldBorderAction.class, "EnumWrappers.WorldBorderAction", "getWorldBorderActions()" ),
 		WORLD_TYPE_MODIFIER( WorldType.class, "WorldType", "getWorldTypeModifier()" );
 
-		private static Map<Class<?>, Modifiers> inputLookup;
+		private static Map<Class<?>, List<Modifiers>> inputLookup;
+
+		// Every modifier that may handle a given class, resolved once per class
+		private static final ClassValue<List<Modifiers>> candidateLookup = new ClassValue<>() {
+			@Override
+			protected List<Modifiers> computeValue(Class<?> type) {
+				return resolveCandidates(type);
+			}
+		};
 
 		static {
 			inputLookup = new HashMap<>();
 
 			for (Modifiers modifier : values()) {
-				inputLookup.put(modifier.inputType, modifier);
+				inputLookup.computeIfAbsent(modifier.inputType, key -> new ArrayList<>()).add(modifier);
 			}
 		}
 
+		/**
+		 * Retrieve the preferred modifier for fields of the given type.
+		 * <p>
+		 * If several modifiers share the same input type, the last one declared is preferred.
+		 * @param inputType - the declared type of the field.
+		 * @return The modifier, or NULL if no modifier can handle the type.
+		 * @see #getCandidates(Class)
+		 */
 		public static Modifiers getByInputType(Class<?> inputType) {
-			for (; inputType != null && !inputType.equals(Object.class); inputType = inputType.getSuperclass()) {
-				Modifiers mod = inputLookup.get(inputType);
+			List<Modifiers> candidates = getCandidates(inputType);
+			return candidates.isEmpty() ? null : candidates.get(candidates.size() - 1);
+		}
+
+		/**
+		 * Retrieve every modifier that may handle fields of the given type, in declaration order.
+		 * <p>
+		 * The type itself is considered first, then its superclasses and finally its interfaces, breadth first.
+		 * More than one candidate means the field is ambiguous, such as a List of an unknown element type.
+		 * @param inputType - the declared type of the field.
+		 * @return The candidates, or an empty list if no modifier can handle the type.
+		 */
+		public static List<Modifiers> getCandidates(Class<?> inputType) {
+			return inputType != null ? candidateLookup.get(inputType) : Collections.emptyList();
+		}
+
+		private static List<Modifiers> resolveCandidates(Class<?> inputType) {
+			Deque<Class<?>> interfaces = new ArrayDeque<>();
 
-				if (mod != null)
-					return mod;
+			for (Class<?> type = inputType; type != null && !type.equals(Object.class); type = type.getSuperclass()) {
+				List<Modifiers> candidates = inputLookup.get(type);
+
+				if (candidates != null)
+					return Collections.unmodifiableList(candidates);
+				interfaces.addAll(Arrays.asList(type.getInterfaces()));
+			}
+
+			// Then the interfaces, closest first
+			Set<Class<?>> visited = new HashSet<>();
+
+			while (!interfaces.isEmpty()) {
+				Class<?> type = interfaces.poll();
+
+				if (visited.add(type)) {
+					List<Modifiers> candidates = inputLookup.get(type);
+
+					if (candidates != null)
+						return Collections.unmodifiableList(candidates);
+					interfaces.addAll(Arrays.asList(type.getInterfaces()));
+				}
 			}
 
 			// Unable to find modifier
-			return null;
+			return Collections.emptyList();
 		}
 
 		private final Class<?> inputType;
@@ -152,6 +208,22 @@ public class WrapperGenerator {
 			return outputType;
 		}
 
+		/**
+		 * Determine if the structure modifier converts the values of its fields.
+		 * <p>
+		 * Primitives and standard library types are returned as is, unless the output type differs.
+		 * @return TRUE if the values are converted, FALSE otherwise.
+		 */
+		public boolean isConverted() {
+			Class<?> component = inputType;
+
+			while (component.isArray()) {
+				component = component.getComponentType();
+			}
+			boolean standard = component.isPrimitive() || component.getName().startsWith("java.");
+			return !standard || !outputType.equals(inputType.getSimpleName());
+		}
+
 		public boolean isWrapper() {
 			return switch ( this ) {
 				case BLOCK, BLOCK_POSITION, COMPONENT, CHUNK_COORD_INT_PAIR, COMPONENT_ARRAY, DATA_WATCHER_MODIFIER, GAME_PROFILE, POSITION_LIST, SERVER_PING -> true;
@@ -160,6 +232,85 @@ public class WrapperGenerator {
 		}
 	}
 
+	/**
+	 * Optional additions to the generated wrappers.
+	 */
+	public enum Feature {
+		/**
+		 * A nested Direct class that reads and writes the packet fields through VarHandles.
+		 */
+		DIRECT_ACCESSORS,
+
+		/**
+		 * Read and write primitive fields through the Direct class, instead of boxing them in a StructureModifier.
+		 * <p>
+		 * This implies {@link #DIRECT_ACCESSORS}.
+		 */
+		PRIMITIVE_ACCESSORS,
+
+		/**
+		 * Create new packets by cloning a default packet, instead of writing the defaults every time.
+		 * <p>
+		 * Only used for packets where every default value is immutable, so the clones cannot share any state.
+		 */
+		PROTOTYPE_CONSTRUCTION,
+
+		/**
+		 * Look up the structure modifier and field index of every accessor once per packet type.
+		 * <p>
+		 * Fields that need no conversion are then read and written through a field accessor that is resolved once.
+		 */
+		CACHED_INDICES,
+
+		/**
+		 * An immutable Snapshot record of every field, with readAll() and writeAll(snapshot).
+		 * <p>
+		 * Fields that need no conversion are read and written through the Direct class, so this implies {@link #DIRECT_ACCESSORS}.
+		 */
+		SNAPSHOTS,
+
+		/**
+		 * A static filter() method with predicates that test the primitive and string fields of a packet.
+		 * <p>
+		 * This implies {@link #DIRECT_ACCESSORS}.
+		 */
+		FILTERS,
+
+		/**
+		 * Field by field contentEquals, contentHash and diff methods.
+		 */
+		CONTENT_EQUALITY,
+
+		/**
+		 * A MovementCoalescer class that merges the movement packets of each entity within a tick.
+		 */
+		COALESCING,
+
+		/**
+		 * A static wrap() method that points a wrapper owned by the current thread at a packet, instead of creating a wrapper.
+		 */
+		POOLED_WRAPPERS,
+
+		/**
+		 * Read-only buffer views and range setters for byte[] and int[] fields, so payloads are not copied to be inspected.
+		 */
+		BUFFER_VIEWS;
+
+		/**
+		 * Parse a feature from its name, ignoring case and allowing dashes.
+		 * @param name - the name of the feature.
+		 * @return The feature.
+		 */
+		public static Feature fromName(String name) {
+			return valueOf(name.trim().toUpperCase(Locale.ENGLISH).replace('-', '_'));
+		}
+	}
+
+	/**
+	 * Version of the generated code. Increment this whenever a change to the generator alters its output.
+	 */
+	public static final int VERSION = 18;
+
 	private static final String NEWLN = System.getProperty("line.separator");
 
 	private static final String[] HEADER = {
@@ -183,56 +334,834 @@ public class WrapperGenerator {
 		" */"
 	};
 
+	/**
+	 * The names of every primitive type.
+	 */
+	private static final Set<String> PRIMITIVE_NAMES = new HashSet<>(Arrays.asList(
+			"boolean", "byte", "short", "char", "int", "long", "float", "double"
+	));
+
+	/**
+	 * The attribute that refers to the field with the entity ID of a packet.
+	 */
+	public static final String ATTRIBUTE_ENTITY_ID = "entityId";
+
+	/**
+	 * The attribute that lists the name and type of every primitive accessor of a packet, such as EntityID:int,OnGround:boolean.
+	 */
+	public static final String ATTRIBUTE_PRIMITIVES = "primitives";
+
+	/**
+	 * Types that cannot be modified after they have been constructed.
+	 */
+	private static final Set<Class<?>> IMMUTABLE_TYPES = new HashSet<>(Arrays.asList(
+			String.class, UUID.class, Boolean.class, Byte.class, Short.class, Character.class,
+			Integer.class, Long.class, Float.class, Double.class
+	));
+
 	private final CodePacketReader codeReader;
 
-	private final Set<String> ignoreArray = new HashSet <>( Arrays.asList( "array", "of" ) );
 	private final WikiPacketReader wikiReader;
+	private final Set<Feature> features;
+	private final WikiTypeNormalizer typeNormalizer;
 
 	public WrapperGenerator(CodePacketReader codeReader, WikiPacketReader wikiReader) {
+		this(codeReader, wikiReader, EnumSet.noneOf(Feature.class));
+	}
+
+	public WrapperGenerator(CodePacketReader codeReader, WikiPacketReader wikiReader, Set<Feature> features) {
+		this(codeReader, wikiReader, features, WikiTypeNormalizer.getDefault());
+	}
+
+	public WrapperGenerator(CodePacketReader codeReader, WikiPacketReader wikiReader, Set<Feature> features,
+							WikiTypeNormalizer typeNormalizer) {
 		this.codeReader = codeReader;
 		this.wikiReader = wikiReader;
+		this.typeNormalizer = typeNormalizer;
+		EnumSet<Feature> enabled = EnumSet.noneOf(Feature.class);
+		enabled.addAll(features);
+
+		if (enabled.contains(Feature.PRIMITIVE_ACCESSORS) || enabled.contains(Feature.FILTERS) ||
+				enabled.contains(Feature.SNAPSHOTS)) {
+			enabled.add(Feature.DIRECT_ACCESSORS);
+		}
+		this.features = Collections.unmodifiableSet(enabled);
 	}
 
-	public String generateClass(PacketType type) throws IOException {
-		StringBuilder builder = new StringBuilder();
-		IndentBuilder indent = new IndentBuilder(builder, 1);
+	/**
+	 * Retrieve the normalizer that converts wiki types to Java types.
+	 * @return The type normalizer.
+	 */
+	public WikiTypeNormalizer getTypeNormalizer() {
+		return typeNormalizer;
+	}
 
+	/**
+	 * Retrieve the optional features included in every generated wrapper.
+	 * @return The enabled features.
+	 */
+	public Set<Feature> getFeatures() {
+		return features;
+	}
+
+	public String generateClass(PacketType type) throws IOException {
 		CodePacketInfo codeInfo = codeReader.readPacket(type);
 		WikiPacketInfo wikiInfo = wikiReader.readPacket(type);
 
+		return generateClass(codeInfo, wikiInfo);
+	}
+
+	/**
+	 * Generate a wrapper from packet information that has already been read.
+	 * <p>
+	 * This method does not touch any shared state, so it may be called from multiple threads at once.
+	 * @param codeInfo - the packet information from the local code.
+	 * @param wikiInfo - the packet information from the wiki.
+	 * @return The source code of the wrapper.
+	 * @throws IOException If we are unable to generate the wrapper.
+	 */
+	public String generateClass(CodePacketInfo codeInfo, WikiPacketInfo wikiInfo) throws IOException {
+		return generateWrapper(codeInfo, wikiInfo).source();
+	}
+
+	/**
+	 * Generate a wrapper from packet information that has already been read, straight into the given output.
+	 * @param codeInfo - the packet information from the local code.
+	 * @param wikiInfo - the packet information from the wiki.
+	 * @param output - the output of the source code.
+	 * @throws IOException If we are unable to generate the wrapper.
+	 */
+	public void generateClass(CodePacketInfo codeInfo, WikiPacketInfo wikiInfo, Appendable output) throws IOException {
+		generateWrapper(codeInfo, wikiInfo, output);
+	}
+
+	/**
+	 * Generate a wrapper from packet information that has already been read, along with the attributes the
+	 * classes that cover every packet need.
+	 * <p>
+	 * This method does not touch any shared state, so it may be called from multiple threads at once.
+	 * @param codeInfo - the packet information from the local code.
+	 * @param wikiInfo - the packet information from the wiki.
+	 * @return The generated wrapper.
+	 * @throws IOException If we are unable to generate the wrapper.
+	 */
+	public GeneratedWrapper generateWrapper(CodePacketInfo codeInfo, WikiPacketInfo wikiInfo) throws IOException {
+		StringBuilder builder = new StringBuilder();
+		Map<String, String> attributes = generateWrapper(codeInfo, wikiInfo, builder);
+
+		return new GeneratedWrapper(builder.toString(), attributes);
+	}
+
+	/**
+	 * Generate a wrapper from packet information that has already been read, straight into the given output.
+	 * <p>
+	 * Everything is streamed, except the accessors when {@link Feature#CACHED_INDICES} is enabled, as
+	 * the cached modifiers must be written before them.
+	 * @param codeInfo - the packet information from the local code.
+	 * @param wikiInfo - the packet information from the wiki.
+	 * @param output - the output of the source code.
+	 * @return The attributes the classes that cover every packet need.
+	 * @throws IOException If we are unable to generate the wrapper.
+	 */
+	public Map<String, String> generateWrapper(CodePacketInfo codeInfo, WikiPacketInfo wikiInfo, Appendable output) throws IOException {
+		IndentBuilder indent = new IndentBuilder(output, 1);
+		PacketType type = codeInfo.getType();
+
 		// Java style
 		String className = "Wrapper" + Wrappit.getCamelCase(type.getProtocol()) + Wrappit.getCamelCase(type.getSender())
 				+ Wrappit.getCamelCase(type.name());
 
-		// Current field index
-		int fieldIndex = 0;
+		StringBuilder methods = null;
+		List<Accessor> accessors = null;
 
-		for (String header : HEADER) {
-			builder.append( header ).append( NEWLN );
+		// Write the accessors first, so we know which modifiers to cache
+		if (features.contains(Feature.CACHED_INDICES)) {
+			methods = new StringBuilder();
+			accessors = writeAccessors(new IndentBuilder(methods, 1), codeInfo, wikiInfo);
 		}
 
-		builder.append("package com.comphenix.packetwrapper;").append(NEWLN).append(NEWLN);
-		builder.append("import com.comphenix.protocol.PacketType;").append(NEWLN);
-		builder.append("import com.comphenix.protocol.events.PacketContainer;").append(NEWLN).append(NEWLN);
-		builder.append("public class ").append(className).append(" extends AbstractPacket {").append(NEWLN)
+		writeHeader(output);
+
+		// Features may need the same classes
+		Set<String> imports = new TreeSet<>();
+		if (features.contains(Feature.CACHED_INDICES)) {
+			imports.addAll(Arrays.asList("com.comphenix.protocol.reflect.StructureModifier",
+					"com.comphenix.protocol.reflect.accessors.Accessors", "com.comphenix.protocol.reflect.accessors.FieldAccessor"));
+		}
+		if (features.contains(Feature.DIRECT_ACCESSORS)) {
+			imports.addAll(Arrays.asList("java.lang.invoke.MethodHandles", "java.lang.invoke.VarHandle"));
+		}
+		if (features.contains(Feature.FILTERS)) {
+			imports.addAll(Arrays.asList("java.util.Arrays", "java.util.Set", "java.util.function.Predicate"));
+		}
+		if (features.contains(Feature.CONTENT_EQUALITY)) {
+			imports.addAll(Arrays.asList("java.util.Arrays", "java.util.Objects"));
+		}
+		if (features.contains(Feature.BUFFER_VIEWS)) {
+			imports.addAll(Arrays.asList("java.nio.ByteBuffer", "java.nio.IntBuffer", "java.util.Arrays", "java.util.Objects"));
+		}
+		for (String name : imports) {
+			output.append("import ").append(name).append(";").append(NEWLN);
+		}
+		output.append(NEWLN);
+		output.append("public class ").append(className).append(" extends AbstractPacket {").append(NEWLN)
 				.append(NEWLN);
 
 		indent.appendLine("public static final PacketType TYPE = " + getReference(type) + ";");
 		indent.appendLine("");
 
+		if (methods != null) {
+			writeCachedModifiers(indent, accessors);
+		}
+
 		// Default constructors
-		indent.appendLine("public " + className + "() {");
-		indent.incrementIndent().appendLine("super(new PacketContainer(TYPE), TYPE);").appendLine("handle.getModifier().writeDefaults();");
-		indent.appendLine("}" + NEWLN);
+		if (features.contains(Feature.PROTOTYPE_CONSTRUCTION) && hasImmutableDefaults(type.getPacketClass())) {
+			writePrototypeConstructor(indent, className);
+		} else {
+			indent.appendLine("public " + className + "() {");
+			indent.incrementIndent().appendLine("super(new PacketContainer(TYPE), TYPE);").appendLine("handle.getModifier().writeDefaults();");
+			indent.appendLine("}" + NEWLN);
+		}
 
 		// And the wrapped packet constructor
 		indent.appendLine("public " + className + "(PacketContainer packet) {");
 		indent.incrementIndent().appendLine("super(packet, TYPE);");
 		indent.appendLine("}" + NEWLN);
 
+		if (features.contains(Feature.POOLED_WRAPPERS)) {
+			writePooledWrap(indent, className);
+		}
+
+		if (methods != null) {
+			output.append(methods);
+		} else {
+			accessors = writeAccessors(indent, codeInfo, wikiInfo);
+		}
+
+		if (features.contains(Feature.SNAPSHOTS)) {
+			writeSnapshotMethods(indent, accessors);
+		}
+
+		if (features.contains(Feature.CONTENT_EQUALITY)) {
+			writeContentMethods(indent, className, accessors);
+		}
+		if (features.contains(Feature.FILTERS)) {
+			writeFilterClass(indent, accessors);
+		}
+		if (features.contains(Feature.DIRECT_ACCESSORS)) {
+			writeDirectClass(indent, codeInfo, accessors);
+		}
+
+		output.append("}");
+		return getAttributes(codeInfo, accessors);
+	}
+
+	/**
+	 * Retrieve the attributes of a wrapper that the classes that cover every packet need.
+	 */
+	private Map<String, String> getAttributes(CodePacketInfo codeInfo, List<Accessor> accessors) {
+		Map<String, String> attributes = new TreeMap<>();
+
+		StringJoiner primitives = new StringJoiner(",");
+
+		for (Accessor accessor : accessors) {
+			if (!attributes.containsKey(ATTRIBUTE_ENTITY_ID) && accessor.name().toLowerCase().contains("entityid") &&
+					accessor.field().getType().equals(int.class)) {
+				attributes.put(ATTRIBUTE_ENTITY_ID, getFieldReference(codeInfo.getType().getPacketClass(), accessor.field()));
+			}
+			if (PRIMITIVE_NAMES.contains(accessor.type())) {
+				primitives.add(accessor.name() + ":" + accessor.type());
+			}
+		}
+		attributes.put(ATTRIBUTE_PRIMITIVES, primitives.toString());
+		return attributes;
+	}
+
+	/**
+	 * Retrieve a reference to a field that does not depend on the name of any NMS class.
+	 * @return The number of superclasses between the packet and the declaring class, and the field name, such as 0:a.
+	 */
+	private String getFieldReference(Class<?> packetClass, Field field) {
+		int depth = 0;
+
+		for (Class<?> clazz = packetClass; !clazz.equals(field.getDeclaringClass()); clazz = clazz.getSuperclass()) {
+			depth++;
+		}
+		return depth + ":" + field.getName();
+	}
+
+	/**
+	 * Generate the EntityIdExtractors class, which reads the entity ID of any packet that has one.
+	 * @param attributes - the attributes of every packet that has a wrapper.
+	 * @param output - the output of the source code.
+	 * @throws IOException If we are unable to generate the extractors.
+	 */
+	public void generateEntityIdExtractors(Map<PacketType, Map<String, String>> attributes, Appendable output) throws IOException {
+		IndentBuilder indent = new IndentBuilder(output, 1);
+		IndentBuilder body = indent.incrementIndent();
+
+		writeHeader(output);
+		output.append("import java.lang.invoke.MethodHandles;").append(NEWLN);
+		output.append("import java.lang.invoke.VarHandle;").append(NEWLN);
+		output.append("import java.util.Arrays;").append(NEWLN).append(NEWLN);
+
+		output.append("/**").append(NEWLN);
+		output.append(" * Reads the entity ID of any packet that has one, by looking up its protocol, sender and ID in dense arrays.").append(NEWLN);
+		output.append(" */").append(NEWLN);
+		output.append("public final class EntityIdExtractors {").append(NEWLN).append(NEWLN);
+
+		indent.appendLine("private static final VarHandle[][][] HANDLES =");
+		indent.incrementIndent().incrementIndent().appendLine("new VarHandle[PacketType.Protocol.values().length][PacketType.Sender.values().length][];");
+		indent.appendLine("");
+
+		indent.appendLine("static {");
+		body.appendLine("try {");
+		for (Map.Entry<PacketType, Map<String, String>> entry : attributes.entrySet()) {
+			String reference = entry.getValue().get(ATTRIBUTE_ENTITY_ID);
+
+			if (reference != null) {
+				String[] parts = reference.split(":", 2);
+				body.incrementIndent().appendLine("register(" + Wrappit.getClassName(entry.getKey()) + ".TYPE, " +
+						parts[0] + ", \"" + parts[1] + "\");");
+			}
+		}
+		body.appendLine("} catch (ReflectiveOperationException e) {");
+		body.incrementIndent().appendLine("throw new ExceptionInInitializerError(e);");
+		body.appendLine("}");
+		indent.appendLine("}" + NEWLN);
+
+		indent.appendLine("private EntityIdExtractors() {");
+		body.appendLine("// Not constructable");
+		indent.appendLine("}" + NEWLN);
+
+		indent.appendLine("private static void register(PacketType type, int depth, String name) throws ReflectiveOperationException {");
+		body.appendLine("int id = type.getCurrentId();");
+		body.appendLine("");
+		body.appendLine("// Not supported by this version");
+		body.appendLine("if (id < 0) {");
+		body.incrementIndent().appendLine("return;");
+		body.appendLine("}");
+		body.appendLine("Class<?> owner = type.getPacketClass();");
+		body.appendLine("");
+		body.appendLine("for (int i = 0; i < depth; i++) {");
+		body.incrementIndent().appendLine("owner = owner.getSuperclass();");
+		body.appendLine("}");
+		body.appendLine("VarHandle[] table = HANDLES[type.getProtocol().ordinal()][type.getSender().ordinal()];");
+		body.appendLine("");
+		body.appendLine("if (table == null) {");
+		body.incrementIndent().appendLine("table = new VarHandle[id + 1];");
+		body.appendLine("} else if (table.length <= id) {");
+		body.incrementIndent().appendLine("table = Arrays.copyOf(table, id + 1);");
+		body.appendLine("}");
+		body.appendLine("table[id] = MethodHandles.privateLookupIn(owner, MethodHandles.lookup()).unreflectVarHandle(owner.getDeclaredField(name));");
+		body.appendLine("HANDLES[type.getProtocol().ordinal()][type.getSender().ordinal()] = table;");
+		indent.appendLine("}" + NEWLN);
+
+		indent.appendLine("private static VarHandle getHandle(PacketType type) {");
+		body.appendLine("VarHandle[] table = HANDLES[type.getProtocol().ordinal()][type.getSender().ordinal()];");
+		body.appendLine("int id = type.getCurrentId();");
+		body.appendLine("");
+		body.appendLine("return table != null && id >= 0 && id < table.length ? table[id] : null;");
+		indent.appendLine("}" + NEWLN);
+
+		indent.appendLine("/**");
+		indent.appendLine(" * Determine if a packet type has an entity ID.");
+		indent.appendLine(" * @param type - the packet type.");
+		indent.appendLine(" * @return TRUE if it does, FALSE otherwise.");
+		indent.appendLine(" */");
+		indent.appendLine("public static boolean hasEntityId(PacketType type) {");
+		body.appendLine("return getHandle(type) != null;");
+		indent.appendLine("}" + NEWLN);
+
+		indent.appendLine("/**");
+		indent.appendLine(" * Retrieve the entity ID of a packet.");
+		indent.appendLine(" * @param packet - the packet.");
+		indent.appendLine(" * @return The entity ID.");
+		indent.appendLine(" * @throws IllegalArgumentException If the packet has no entity ID.");
+		indent.appendLine(" */");
+		indent.appendLine("public static int getEntityId(PacketContainer packet) {");
+		body.appendLine("VarHandle handle = getHandle(packet.getType());");
+		body.appendLine("");
+		body.appendLine("if (handle == null) {");
+		body.incrementIndent().appendLine("throw new IllegalArgumentException(\"Packet \" + packet.getType() + \" has no entity ID\");");
+		body.appendLine("}");
+		body.appendLine("return (int) handle.get(packet.getHandle());");
+		indent.appendLine("}");
+
+		output.append("}");
+	}
+
+	/**
+	 * Generate the PacketWrappers class, which finds the wrapper of a packet by its protocol, sender and ID.
+	 * <p>
+	 * The IDs are looked up when the class is initialized, so the registry works for every version of the packets.
+	 * @param types - the packets that have a wrapper.
+	 * @param output - the output of the source code.
+	 * @throws IOException If we are unable to generate the registry.
+	 */
+	public void generateRegistry(Collection<PacketType> types, Appendable output) throws IOException {
+		IndentBuilder indent = new IndentBuilder(output, 1);
+
+		writeHeader(output);
+		output.append("import java.util.Arrays;").append(NEWLN);
+		output.append("import java.util.function.Function;").append(NEWLN).append(NEWLN);
+
+		output.append("/**").append(NEWLN);
+		output.append(" * Creates the wrapper of any packet, by looking up its protocol, sender and ID in dense arrays.").append(NEWLN);
+		output.append(" */").append(NEWLN);
+		output.append("public final class PacketWrappers {").append(NEWLN).append(NEWLN);
+
+		indent.appendLine("@SuppressWarnings(\"unchecked\")");
+		indent.appendLine("private static final Function<PacketContainer, AbstractPacket>[][][] FACTORIES =");
+		indent.incrementIndent().incrementIndent().appendLine("new Function[PacketType.Protocol.values().length][PacketType.Sender.values().length][];");
+		indent.appendLine("");
+
+		indent.appendLine("static {");
+		for (PacketType type : types) {
+			String className = Wrappit.getClassName(type);
+			indent.incrementIndent().appendLine("register(" + className + ".TYPE, " + className + "::new);");
+		}
+		indent.appendLine("}" + NEWLN);
+
+		indent.appendLine("private PacketWrappers() {");
+		indent.incrementIndent().appendLine("// Not constructable");
+		indent.appendLine("}" + NEWLN);
+
+		indent.appendLine("@SuppressWarnings(\"unchecked\")");
+		indent.appendLine("private static void register(PacketType type, Function<PacketContainer, AbstractPacket> factory) {");
+		IndentBuilder body = indent.incrementIndent();
+		body.appendLine("int id = type.getCurrentId();");
+		body.appendLine("");
+		body.appendLine("// Not supported by this version");
+		body.appendLine("if (id < 0) {");
+		body.incrementIndent().appendLine("return;");
+		body.appendLine("}");
+		body.appendLine("Function<PacketContainer, AbstractPacket>[] table = FACTORIES[type.getProtocol().ordinal()][type.getSender().ordinal()];");
+		body.appendLine("");
+		body.appendLine("if (table == null) {");
+		body.incrementIndent().appendLine("table = new Function[id + 1];");
+		body.appendLine("} else if (table.length <= id) {");
+		body.incrementIndent().appendLine("table = Arrays.copyOf(table, id + 1);");
+		body.appendLine("}");
+		body.appendLine("table[id] = factory;");
+		body.appendLine("FACTORIES[type.getProtocol().ordinal()][type.getSender().ordinal()] = table;");
+		indent.appendLine("}" + NEWLN);
+
+		indent.appendLine("/**");
+		indent.appendLine(" * Retrieve the constructor of the wrapper of a packet type.");
+		indent.appendLine(" * @param type - the packet type.");
+		indent.appendLine(" * @return The constructor, or NULL if the packet has no wrapper.");
+		indent.appendLine(" */");
+		indent.appendLine("public static Function<PacketContainer, AbstractPacket> getFactory(PacketType type) {");
+		body.appendLine("Function<PacketContainer, AbstractPacket>[] table = FACTORIES[type.getProtocol().ordinal()][type.getSender().ordinal()];");
+		body.appendLine("int id = type.getCurrentId();");
+		body.appendLine("");
+		body.appendLine("return table != null && id >= 0 && id < table.length ? table[id] : null;");
+		indent.appendLine("}" + NEWLN);
+
+		indent.appendLine("/**");
+		indent.appendLine(" * Wrap a packet in its wrapper.");
+		indent.appendLine(" * @param packet - the packet.");
+		indent.appendLine(" * @return The wrapper, or NULL if the packet has no wrapper.");
+		indent.appendLine(" */");
+		indent.appendLine("public static AbstractPacket wrap(PacketContainer packet) {");
+		body.appendLine("Function<PacketContainer, AbstractPacket> factory = getFactory(packet.getType());");
+		body.appendLine("return factory != null ? factory.apply(packet) : null;");
+		indent.appendLine("}");
+
+		output.append("}");
+	}
+
+	/**
+	 * Generate the MovementCoalescer class, which merges the relative moves of each entity within a tick.
+	 * <p>
+	 * Moves that no longer fit in a relative move are promoted to a teleport, provided the wrapper of the
+	 * teleport packet has the accessors we need. Looks and velocities are merged by keeping the latest packet.
+	 * A teleport replaces every earlier move and look of its entity, and a move and look merges its delta with
+	 * the pending moves and replaces the pending look, so the entity ends up where the packets would have put it.
+	 * @param attributes - the attributes of every packet that has a wrapper.
+	 * @param output - the output of the source code.
+	 * @throws IOException If we are unable to generate the coalescer.
+	 * @throws IllegalStateException If the relative move, move and look or teleport wrappers are missing accessors.
+	 * @see #canGenerateMovementCoalescer(Map)
+	 */
+	public void generateMovementCoalescer(Map<PacketType, Map<String, String>> attributes, Appendable output) throws IOException {
+		Map<String, String> move = getPrimitiveAccessors(attributes.get(PacketType.Play.Server.REL_ENTITY_MOVE));
+		Map<String, String> moveLook = getPrimitiveAccessors(attributes.get(PacketType.Play.Server.REL_ENTITY_MOVE_LOOK));
+		Map<String, String> teleport = getPrimitiveAccessors(attributes.get(PacketType.Play.Server.ENTITY_TELEPORT));
+		Map<String, String> look = getPrimitiveAccessors(attributes.get(PacketType.Play.Server.ENTITY_LOOK));
+		Map<String, String> velocity = getPrimitiveAccessors(attributes.get(PacketType.Play.Server.ENTITY_VELOCITY));
+
+		if (!canGenerateMovementCoalescer(attributes)) {
+			throw new IllegalStateException("The relative move, move and look or teleport wrappers lack entity ID, delta or on ground accessors");
+		}
+		String moveId = findEntityIdAccessor(move);
+		String moveLookId = findEntityIdAccessor(moveLook);
+		String teleportId = findEntityIdAccessor(teleport);
+		boolean canTeleport = hasNumericAccessors(teleport, "X", "Y", "Z", "Yaw", "Pitch") &&
+				"boolean".equals(teleport.get("OnGround"));
+		String lookId = findEntityIdAccessor(look);
+		String velocityId = findEntityIdAccessor(velocity);
+
+		String moveClass = Wrappit.getClassName(PacketType.Play.Server.REL_ENTITY_MOVE);
+		String moveLookClass = Wrappit.getClassName(PacketType.Play.Server.REL_ENTITY_MOVE_LOOK);
+		String teleportClass = Wrappit.getClassName(PacketType.Play.Server.ENTITY_TELEPORT);
+		String lookClass = Wrappit.getClassName(PacketType.Play.Server.ENTITY_LOOK);
+		String velocityClass = Wrappit.getClassName(PacketType.Play.Server.ENTITY_VELOCITY);
+		String deltaType = getBoxedType(move.get("DeltaX"));
+
+		IndentBuilder indent = new IndentBuilder(output, 1);
+		IndentBuilder body = indent.incrementIndent();
+		IndentBuilder nested = body.incrementIndent();
+
+		writeHeader(output);
+		output.append("import java.util.LinkedHashMap;").append(NEWLN);
+		output.append("import java.util.Map;").append(NEWLN);
+		output.append("import java.util.function.Consumer;").append(NEWLN);
+		output.append("import java.util.function.IntFunction;").append(NEWLN).append(NEWLN);
+		output.append("import org.bukkit.Location;").append(NEWLN).append(NEWLN);
+
+		output.append("/**").append(NEWLN);
+		output.append(" * Merges the movement packets of each entity within a tick, so fewer packets are sent.").append(NEWLN);
+		output.append(" * <p>").append(NEWLN);
+		output.append(" * Offer the packets of a tick instead of sending them, then flush them before the next tick.").append(NEWLN);
+		output.append(" * A teleport replaces the earlier moves and looks of its entity, and the moves offered after it are sent after it.").append(NEWLN);
+		output.append(" * Offered packets may be modified before they are sent. This class is not thread safe.").append(NEWLN);
+		output.append(" */").append(NEWLN);
+		output.append("public final class MovementCoalescer {").append(NEWLN).append(NEWLN);
+
+		indent.appendLine("private final Map<Integer, Movement> movements = new LinkedHashMap<>();" + NEWLN);
+
+		indent.appendLine("/**");
+		indent.appendLine(" * The merged movement of an entity.");
+		indent.appendLine(" */");
+		indent.appendLine("private static final class Movement {");
+		body.appendLine("private " + teleportClass + " teleport;");
+		body.appendLine("private boolean moved;");
+		body.appendLine("private long deltaX;");
+		body.appendLine("private long deltaY;");
+		body.appendLine("private long deltaZ;");
+		body.appendLine("private boolean onGround;");
+		body.appendLine("private " + moveLookClass + " moveLook;");
+		if (lookId != null) {
+			body.appendLine("private " + lookClass + " look;");
+		}
+		if (velocityId != null) {
+			body.appendLine("private " + velocityClass + " velocity;");
+		}
+		indent.appendLine("}" + NEWLN);
+
+		indent.appendLine("private Movement getMovement(int entityId) {");
+		body.appendLine("return movements.computeIfAbsent(entityId, id -> new Movement());");
+		indent.appendLine("}" + NEWLN);
+
+		indent.appendLine("/**");
+		indent.appendLine(" * Add a relative move to the movement of its entity.");
+		indent.appendLine(" * @param packet - the relative move.");
+		indent.appendLine(" */");
+		indent.appendLine("public void offer(" + moveClass + " packet) {");
+		body.appendLine("Movement movement = getMovement(packet.get" + moveId + "());");
+		body.appendLine("movement.moved = true;");
+		body.appendLine("movement.deltaX += packet.getDeltaX();");
+		body.appendLine("movement.deltaY += packet.getDeltaY();");
+		body.appendLine("movement.deltaZ += packet.getDeltaZ();");
+		body.appendLine("movement.onGround = packet.getOnGround();");
+		indent.appendLine("}" + NEWLN);
+
+		indent.appendLine("/**");
+		indent.appendLine(" * Add a relative move and look to the movement of its entity, replacing the pending look.");
+		indent.appendLine(" * @param packet - the relative move and look.");
+		indent.appendLine(" */");
+		indent.appendLine("public void offer(" + moveLookClass + " packet) {");
+		body.appendLine("Movement movement = getMovement(packet.get" + moveLookId + "());");
+		body.appendLine("movement.moved = true;");
+		body.appendLine("movement.deltaX += packet.getDeltaX();");
+		body.appendLine("movement.deltaY += packet.getDeltaY();");
+		body.appendLine("movement.deltaZ += packet.getDeltaZ();");
+		body.appendLine("movement.onGround = packet.getOnGround();");
+		body.appendLine("movement.moveLook = packet;");
+		if (lookId != null) {
+			body.appendLine("movement.look = null;");
+		}
+		indent.appendLine("}" + NEWLN);
+
+		indent.appendLine("/**");
+		indent.appendLine(" * Replace the pending moves and looks of an entity with a teleport.");
+		indent.appendLine(" * @param packet - the teleport.");
+		indent.appendLine(" */");
+		indent.appendLine("public void offer(" + teleportClass + " packet) {");
+		body.appendLine("Movement movement = getMovement(packet.get" + teleportId + "());");
+		body.appendLine("movement.teleport = packet;");
+		body.appendLine("movement.moved = false;");
+		body.appendLine("movement.deltaX = 0;");
+		body.appendLine("movement.deltaY = 0;");
+		body.appendLine("movement.deltaZ = 0;");
+		body.appendLine("movement.moveLook = null;");
+		if (lookId != null) {
+			body.appendLine("movement.look = null;");
+		}
+		indent.appendLine("}" + NEWLN);
+
+		if (lookId != null) {
+			indent.appendLine("/**");
+			indent.appendLine(" * Replace the pending look of an entity.");
+			indent.appendLine(" * @param packet - the look.");
+			indent.appendLine(" */");
+			indent.appendLine("public void offer(" + lookClass + " packet) {");
+			body.appendLine("getMovement(packet.get" + lookId + "()).look = packet;");
+			indent.appendLine("}" + NEWLN);
+		}
+		if (velocityId != null) {
+			indent.appendLine("/**");
+			indent.appendLine(" * Replace the pending velocity of an entity.");
+			indent.appendLine(" * @param packet - the velocity.");
+			indent.appendLine(" */");
+			indent.appendLine("public void offer(" + velocityClass + " packet) {");
+			body.appendLine("getMovement(packet.get" + velocityId + "()).velocity = packet;");
+			indent.appendLine("}" + NEWLN);
+		}
+
+		indent.appendLine("/**");
+		indent.appendLine(" * Add a packet to the pending movements, if it is a movement packet.");
+		indent.appendLine(" * @param packet - the packet.");
+		indent.appendLine(" * @return TRUE if the packet was added, FALSE if it should be sent as is.");
+		indent.appendLine(" */");
+		indent.appendLine("public boolean offer(PacketContainer packet) {");
+		body.appendLine("PacketType type = packet.getType();");
+		body.appendLine("");
+		body.appendLine("if (" + moveClass + ".TYPE.equals(type)) {");
+		nested.appendLine("offer(new " + moveClass + "(packet));");
+		body.appendLine("} else if (" + moveLookClass + ".TYPE.equals(type)) {");
+		nested.appendLine("offer(new " + moveLookClass + "(packet));");
+		body.appendLine("} else if (" + teleportClass + ".TYPE.equals(type)) {");
+		nested.appendLine("offer(new " + teleportClass + "(packet));");
+		if (lookId != null) {
+			body.appendLine("} else if (" + lookClass + ".TYPE.equals(type)) {");
+			nested.appendLine("offer(new " + lookClass + "(packet));");
+		}
+		if (velocityId != null) {
+			body.appendLine("} else if (" + velocityClass + ".TYPE.equals(type)) {");
+			nested.appendLine("offer(new " + velocityClass + "(packet));");
+		}
+		body.appendLine("} else {");
+		nested.appendLine("return false;");
+		body.appendLine("}");
+		body.appendLine("return true;");
+		indent.appendLine("}" + NEWLN);
+
+		indent.appendLine("/**");
+		indent.appendLine(" * Send the merged movement of every entity, and clear the pending movements.");
+		indent.appendLine(" * @param sink - receives the packets to send.");
+		indent.appendLine(" * @param positions - retrieves the current location of an entity, for moves that no longer fit in a relative move.");
+		indent.appendLine(" *                    May be NULL, or return NULL, in which case the move is split into several relative moves.");
+		indent.appendLine(" */");
+		indent.appendLine("public void flush(Consumer<AbstractPacket> sink, IntFunction<Location> positions) {");
+		body.appendLine("for (Map.Entry<Integer, Movement> entry : movements.entrySet()) {");
+		nested.appendLine("int entityId = entry.getKey();");
+		nested.appendLine("Movement movement = entry.getValue();");
+		nested.appendLine("");
+		nested.appendLine("if (movement.teleport != null) {");
+		nested.incrementIndent().appendLine("sink.accept(movement.teleport);");
+		nested.appendLine("}");
+		nested.appendLine("if (movement.moveLook != null && fits(movement)) {");
+		IndentBuilder inner = nested.incrementIndent();
+		inner.appendLine("// A single move and look covers the whole movement");
+		inner.appendLine("sink.accept(setMoveLook(movement.moveLook, movement.deltaX, movement.deltaY, movement.deltaZ, movement.onGround));");
+		nested.appendLine("} else {");
+		inner.appendLine("if (movement.moved) {");
+		IndentBuilder innermost = inner.incrementIndent();
+		if (canTeleport) {
+			innermost.appendLine("Location location = fits(movement) || positions == null ? null : positions.apply(entityId);");
+			innermost.appendLine("");
+			innermost.appendLine("if (location != null) {");
+			innermost.incrementIndent().appendLine("sink.accept(createTeleport(entityId, location, movement.onGround));");
+			innermost.appendLine("} else {");
+			innermost.incrementIndent().appendLine("writeMoves(sink, entityId, movement);");
+			innermost.appendLine("}");
+		} else {
+			innermost.appendLine("writeMoves(sink, entityId, movement);");
+		}
+		inner.appendLine("}");
+		inner.appendLine("if (movement.moveLook != null) {");
+		innermost.appendLine("// Only the look is left");
+		innermost.appendLine("sink.accept(setMoveLook(movement.moveLook, 0, 0, 0, movement.onGround));");
+		inner.appendLine("}");
+		nested.appendLine("}");
+		if (lookId != null) {
+			nested.appendLine("if (movement.look != null) {");
+			nested.incrementIndent().appendLine("sink.accept(movement.look);");
+			nested.appendLine("}");
+		}
+		if (velocityId != null) {
+			nested.appendLine("if (movement.velocity != null) {");
+			nested.incrementIndent().appendLine("sink.accept(movement.velocity);");
+			nested.appendLine("}");
+		}
+		body.appendLine("}");
+		body.appendLine("movements.clear();");
+		indent.appendLine("}" + NEWLN);
+
+		indent.appendLine("private static boolean fits(Movement movement) {");
+		body.appendLine("return fits(movement.deltaX) && fits(movement.deltaY) && fits(movement.deltaZ);");
+		indent.appendLine("}" + NEWLN);
+
+		indent.appendLine("private static boolean fits(long delta) {");
+		body.appendLine("return delta >= " + deltaType + ".MIN_VALUE && delta <= " + deltaType + ".MAX_VALUE;");
+		indent.appendLine("}" + NEWLN);
+
+		indent.appendLine("private static long clamp(long delta) {");
+		body.appendLine("return Math.max(" + deltaType + ".MIN_VALUE, Math.min(" + deltaType + ".MAX_VALUE, delta));");
+		indent.appendLine("}" + NEWLN);
+
+		indent.appendLine("private static " + moveLookClass + " setMoveLook(" + moveLookClass + " packet, long deltaX, long deltaY, long deltaZ, boolean onGround) {");
+		body.appendLine("packet.setDeltaX((" + moveLook.get("DeltaX") + ") deltaX);");
+		body.appendLine("packet.setDeltaY((" + moveLook.get("DeltaY") + ") deltaY);");
+		body.appendLine("packet.setDeltaZ((" + moveLook.get("DeltaZ") + ") deltaZ);");
+		body.appendLine("packet.setOnGround(onGround);");
+		body.appendLine("return packet;");
+		indent.appendLine("}" + NEWLN);
+
+		indent.appendLine("/**");
+		indent.appendLine(" * Write a movement as the fewest relative moves that fit.");
+		indent.appendLine(" */");
+		indent.appendLine("private static void writeMoves(Consumer<AbstractPacket> sink, int entityId, Movement movement) {");
+		body.appendLine("long remainingX = movement.deltaX;");
+		body.appendLine("long remainingY = movement.deltaY;");
+		body.appendLine("long remainingZ = movement.deltaZ;");
+		body.appendLine("");
+		body.appendLine("do {");
+		nested.appendLine("long stepX = clamp(remainingX);");
+		nested.appendLine("long stepY = clamp(remainingY);");
+		nested.appendLine("long stepZ = clamp(remainingZ);");
+		nested.appendLine("");
+		nested.appendLine(moveClass + " packet = new " + moveClass + "();");
+		nested.appendLine("packet.set" + moveId + "(entityId);");
+		nested.appendLine("packet.setDeltaX((" + move.get("DeltaX") + ") stepX);");
+		nested.appendLine("packet.setDeltaY((" + move.get("DeltaY") + ") stepY);");
+		nested.appendLine("packet.setDeltaZ((" + move.get("DeltaZ") + ") stepZ);");
+		nested.appendLine("packet.setOnGround(movement.onGround);");
+		nested.appendLine("sink.accept(packet);");
+		nested.appendLine("");
+		nested.appendLine("remainingX -= stepX;");
+		nested.appendLine("remainingY -= stepY;");
+		nested.appendLine("remainingZ -= stepZ;");
+		body.appendLine("} while (remainingX != 0 || remainingY != 0 || remainingZ != 0);");
+		indent.appendLine("}" + NEWLN);
+
+		if (canTeleport) {
+			indent.appendLine("private static " + teleportClass + " createTeleport(int entityId, Location location, boolean onGround) {");
+			body.appendLine(teleportClass + " packet = new " + teleportClass + "();");
+			body.appendLine("packet.set" + teleportId + "(entityId);");
+			body.appendLine("packet.setX((" + teleport.get("X") + ") location.getX());");
+			body.appendLine("packet.setY((" + teleport.get("Y") + ") location.getY());");
+			body.appendLine("packet.setZ((" + teleport.get("Z") + ") location.getZ());");
+			body.appendLine("packet.setYaw(" + getAngleExpression(teleport.get("Yaw"), "location.getYaw()") + ");");
+			body.appendLine("packet.setPitch(" + getAngleExpression(teleport.get("Pitch"), "location.getPitch()") + ");");
+			body.appendLine("packet.setOnGround(onGround);");
+			body.appendLine("return packet;");
+			indent.appendLine("}");
+		}
+
+		output.append("}");
+	}
+
+	/**
+	 * Determine if the movement wrappers have the accessors the MovementCoalescer needs.
+	 * <p>
+	 * Teleports and relative moves with a look must be merged as well, or they would overtake the pending moves of their entity.
+	 * @param attributes - the attributes of every packet that has a wrapper.
+	 * @return TRUE if the coalescer can be generated, FALSE otherwise.
+	 */
+	public boolean canGenerateMovementCoalescer(Map<PacketType, Map<String, String>> attributes) {
+		Map<String, String> move = getPrimitiveAccessors(attributes.get(PacketType.Play.Server.REL_ENTITY_MOVE));
+		Map<String, String> moveLook = getPrimitiveAccessors(attributes.get(PacketType.Play.Server.REL_ENTITY_MOVE_LOOK));
+		Map<String, String> teleport = getPrimitiveAccessors(attributes.get(PacketType.Play.Server.ENTITY_TELEPORT));
+
+		return canMergeMoves(move) && canMergeMoves(moveLook) && findEntityIdAccessor(teleport) != null;
+	}
+
+	private boolean canMergeMoves(Map<String, String> accessors) {
+		return findEntityIdAccessor(accessors) != null && hasNumericAccessors(accessors, "DeltaX", "DeltaY", "DeltaZ") &&
+				"boolean".equals(accessors.get("OnGround"));
+	}
+
+	/**
+	 * Retrieve an expression that converts an angle in degrees to the type of an accessor.
+	 * <p>
+	 * Integral types hold the angle in steps of 1/256 of a full turn.
+	 */
+	private String getAngleExpression(String type, String degrees) {
+		if (type.equals("float") || type.equals("double")) {
+			return "(" + type + ") " + degrees;
+		}
+		return "(" + type + ") (" + degrees + " * 256.0F / 360.0F)";
+	}
+
+	/**
+	 * Parse the primitive accessors of a wrapper.
+	 * @param attributes - the attributes of the wrapper, or NULL if there is no wrapper.
+	 * @return The type of every accessor by name.
+	 */
+	private Map<String, String> getPrimitiveAccessors(Map<String, String> attributes) {
+		Map<String, String> result = new HashMap<>();
+		String primitives = attributes != null ? attributes.get(ATTRIBUTE_PRIMITIVES) : null;
+
+		if (primitives != null && !primitives.isEmpty()) {
+			for (String accessor : primitives.split(",")) {
+				String[] parts = accessor.split(":", 2);
+				result.put(parts[0], parts[1]);
+			}
+		}
+		return result;
+	}
+
+	private String findEntityIdAccessor(Map<String, String> accessors) {
+		for (Map.Entry<String, String> entry : accessors.entrySet()) {
+			if (entry.getKey().toLowerCase().contains("entityid") && entry.getValue().equals("int")) {
+				return entry.getKey();
+			}
+		}
+		return null;
+	}
+
+	private boolean hasNumericAccessors(Map<String, String> accessors, String... names) {
+		for (String name : names) {
+			String type = accessors.get(name);
+
+			if (type == null || type.equals("boolean") || type.equals("char")) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Write the license, package and the imports every generated class needs.
+	 */
+	private void writeHeader(Appendable output) throws IOException {
+		for (String header : HEADER) {
+			output.append( header ).append( NEWLN );
+		}
+
+		output.append("package com.comphenix.packetwrapper;").append(NEWLN).append(NEWLN);
+		output.append("import com.comphenix.protocol.PacketType;").append(NEWLN);
+		output.append("import com.comphenix.protocol.events.PacketContainer;").append(NEWLN);
+	}
+
+	/**
+	 * Write the getter and setter of every field in the packet.
+	 * @return Every field we have generated accessors for.
+	 */
+	private List<Accessor> writeAccessors(IndentBuilder indent, CodePacketInfo codeInfo, WikiPacketInfo wikiInfo) throws IOException {
+		List<Accessor> accessors = new ArrayList<>();
+		PacketType type = codeInfo.getType();
+
+		// Current field index
+		int fieldIndex = 0;
+
 		for (WikiPacketField field : wikiInfo.getPacketFields()) {
 			if (fieldIndex < codeInfo.getNetworkOrder().size()) {
-				Field codeField = codeInfo.getNetworkOrder().get(fieldIndex);
+				Field codeField = codeInfo.getNetworkField(fieldIndex);
 				Modifiers modifier = Modifiers.getByInputType(codeField.getType());
 
 				if (modifier == null) {
@@ -241,9 +1170,31 @@ public class WrapperGenerator {
 					continue;
 				}
 
+				List<Modifiers> candidates = Modifiers.getCandidates(codeField.getType());
+
+				if (candidates.size() > 1) {
+					indent.appendLine("// Ambiguous type for " + codeField.getName() + " - assuming " + modifier.getOutputType());
+					System.err.println("Ambiguous type " + codeField.getType() + " for field " + codeField.getName() + " in " + type.toString() +
+							" - using " + modifier + " out of " + candidates);
+				}
+
+				WireType documented = field.getFieldType() != null ? WireType.fromWikiType(field.getFieldType()) : null;
+				WireType written = codeInfo.getWireTypes().get(fieldIndex);
+
+				// Usually the wiki lists a field the code does not have, or the other way around
+				if (documented != null && written != WireType.CUSTOM && documented != written) {
+					indent.appendLine("// The wiki documents " + field.getFieldName() + " as " + field.getFieldType() + ", but " +
+							codeField.getName() + " is written as " + written);
+					System.err.println("Wire type " + written + " of field " + codeField.getName() + " in " + type.toString() +
+							" does not match " + field.getFieldType() + " on the wiki");
+				}
+
+				boolean generated = field.getFieldName() != null;
+
 				try {
 					writeGetMethod(indent, fieldIndex, modifier, codeInfo, field);
 				} catch (Throwable ex) {
+					generated = false;
 					indent.appendLine("// Cannot generate getter " + codeField.getName());
 					System.err.println("Failed to generate getter " + codeField.getName() + " in " + type.toString());
 					ex.printStackTrace();
@@ -252,19 +1203,483 @@ public class WrapperGenerator {
 				try {
 					writeSetMethod(indent, fieldIndex, modifier, codeInfo, field);
 				} catch (Throwable ex) {
+					generated = false;
 					indent.appendLine("// Cannot generate setter " + codeField.getName());
 					System.err.println("Failed to generate setter " + codeField.getName() + " in " + type.toString());
 					ex.printStackTrace();
 				}
+
+				if (generated && features.contains(Feature.BUFFER_VIEWS) &&
+						(modifier == Modifiers.BYTE_ARRAYS || modifier == Modifiers.INTEGER_ARRAYS)) {
+					writeBufferMethods(indent, fieldIndex, modifier, codeInfo, field);
+				}
+
+				if (generated) {
+					accessors.add(new Accessor(fieldIndex, codeField, getFieldName(field), getAccessorType(modifier, field),
+							modifier, codeInfo.getMemoryIndex(fieldIndex)));
+				}
 			} else {
 				indent.appendLine("// Cannot generate field " + field.getFieldName());
 			}
 
 			fieldIndex++;
 		}
+		return accessors;
+	}
 
-		builder.append("}");
-		return builder.toString();
+	/**
+	 * Write the structure modifiers and field indices that the accessors use, so they are only looked up once per packet type.
+	 * <p>
+	 * Fields that are not converted also get a field accessor, so reading them does not copy the structure modifier.
+	 */
+	private void writeCachedModifiers(IndentBuilder indent, List<Accessor> accessors) throws IOException {
+		Set<Modifiers> written = EnumSet.noneOf(Modifiers.class);
+
+		for (Accessor accessor : accessors) {
+			if (!isPrimitiveAccess(accessor.modifier()) && written.add(accessor.modifier())) {
+				indent.appendLine("private static final StructureModifier<" + getModifierElementType(accessor.modifier()) + "> " +
+						accessor.modifier().name() + " = new PacketContainer(TYPE)." + accessor.modifier().getMethodName() + ";");
+			}
+		}
+		for (Accessor accessor : accessors) {
+			if (!isPrimitiveAccess(accessor.modifier())) {
+				indent.appendLine("private static final int " + accessor.getIndexName() + " = " + accessor.memoryIndex() + ";");
+			}
+		}
+		for (Accessor accessor : accessors) {
+			if (isFieldAccess(accessor.modifier())) {
+				indent.appendLine("private static final FieldAccessor " + getAccessorName(accessor.name()) + " = Accessors.getFieldAccessor(" +
+						accessor.modifier().name() + ".getField(" + accessor.getIndexName() + "), true);");
+			}
+		}
+		indent.appendLine("");
+	}
+
+	/**
+	 * Retrieve the type argument of the structure modifier returned by a modifier method.
+	 */
+	private String getModifierElementType(Modifiers modifier) {
+		String method = modifier.getMethodName();
+
+		if (method.startsWith("getSpecificModifier(")) {
+			return method.substring("getSpecificModifier(".length(), method.indexOf(".class)"));
+		}
+		return getBoxedType(modifier.getOutputType());
+	}
+
+	/**
+	 * Retrieve the wrapper class of a primitive type, or the type itself if it is not primitive.
+	 */
+	private static String getBoxedType(String type) {
+		return switch (type) {
+			case "boolean" -> "Boolean";
+			case "byte" -> "Byte";
+			case "short" -> "Short";
+			case "char" -> "Character";
+			case "int" -> "Integer";
+			case "long" -> "Long";
+			case "float" -> "Float";
+			case "double" -> "Double";
+			default -> type;
+		};
+	}
+
+	/**
+	 * Write a record that holds every field of the packet, and the methods that read and write it in one go.
+	 * <p>
+	 * Fields that need no conversion go straight through the Direct class, the rest through their getter and setter.
+	 */
+	private void writeSnapshotMethods(IndentBuilder indent, List<Accessor> accessors) throws IOException {
+		IndentBuilder body = indent.incrementIndent();
+		List<String> components = new ArrayList<>();
+		Set<String> names = new HashSet<>();
+
+		// Fields the wiki has given the same name are told apart by their network index
+		for (Accessor accessor : accessors) {
+			String component = accessor.getComponentName();
+
+			if (!names.add(component)) {
+				component += accessor.fieldIndex();
+				names.add(component);
+			}
+			components.add(component);
+		}
+
+		StringJoiner parameters = new StringJoiner(", ");
+		StringJoiner arguments = new StringJoiner(", ");
+
+		for (int i = 0; i < accessors.size(); i++) {
+			Accessor accessor = accessors.get(i);
+
+			parameters.add(accessor.type() + " " + components.get(i));
+			arguments.add(getSnapshotRead(accessor));
+		}
+
+		indent.appendLine("/**");
+		indent.appendLine(" * An immutable copy of every field in this packet, in network order.");
+		indent.appendLine(" */");
+		indent.appendLine("public record Snapshot(" + parameters + ") {");
+		indent.appendLine("}" + NEWLN);
+
+		indent.appendLine("/**");
+		indent.appendLine(" * Retrieve every field of this packet at once.");
+		indent.appendLine(" * @return A snapshot of the current fields.");
+		indent.appendLine(" */");
+		indent.appendLine("public Snapshot readAll() {");
+		body.appendLine("Object packet = handle.getHandle();");
+		body.appendLine("return new Snapshot(" + arguments + ");");
+		indent.appendLine("}" + NEWLN);
+
+		indent.appendLine("/**");
+		indent.appendLine(" * Set every field of this packet at once.");
+		indent.appendLine(" * @param snapshot - the new fields.");
+		indent.appendLine(" */");
+		indent.appendLine("public void writeAll(Snapshot snapshot) {");
+		body.appendLine("Object packet = handle.getHandle();");
+		for (int i = 0; i < accessors.size(); i++) {
+			body.appendLine(getSnapshotWrite(accessors.get(i), "snapshot." + components.get(i) + "()"));
+		}
+		indent.appendLine("}" + NEWLN);
+	}
+
+	/**
+	 * Retrieve an expression that reads a field of the packet in readAll().
+	 */
+	private String getSnapshotRead(Accessor accessor) {
+		if (accessor.modifier().isConverted()) {
+			return "get" + accessor.name() + "()";
+		}
+		String directType = getDirectType(accessor.field().getType());
+		String cast = directType.equals(accessor.type()) ? "" : "(" + accessor.type() + ") ";
+
+		return cast + "Direct.get" + accessor.name() + "(packet)";
+	}
+
+	/**
+	 * Retrieve a statement that writes a field of the packet in writeAll().
+	 */
+	private String getSnapshotWrite(Accessor accessor, String value) {
+		if (accessor.modifier().isConverted()) {
+			return "set" + accessor.name() + "(" + value + ");";
+		}
+		String directType = getDirectType(accessor.field().getType());
+		String cast = directType.equals(accessor.type()) || directType.equals("Object") ? "" : "(" + directType + ") ";
+
+		return "Direct.set" + accessor.name() + "(packet, " + cast + value + ");";
+	}
+
+	/**
+	 * Write a static method that reuses one wrapper per thread.
+	 */
+	private void writePooledWrap(IndentBuilder indent, String className) throws IOException {
+		IndentBuilder body = indent.incrementIndent();
+
+		indent.appendLine("private static final ThreadLocal<" + className + "> POOL =");
+		body.incrementIndent().appendLine("ThreadLocal.withInitial(() -> new " + className + "(new PacketContainer(TYPE)));" + NEWLN);
+
+		indent.appendLine("/**");
+		indent.appendLine(" * Retrieve the wrapper owned by the current thread, pointed at the given packet.");
+		indent.appendLine(" * <p>");
+		indent.appendLine(" * The wrapper is only valid until the next call to this method on the same thread, which points it at");
+		indent.appendLine(" * another packet. Never store it or pass it to another thread - use the constructor for that instead.");
+		indent.appendLine(" * The wrapper also keeps the last packet it was pointed at reachable.");
+		indent.appendLine(" * @param packet - the packet to wrap.");
+		indent.appendLine(" * @return The wrapper of the current thread.");
+		indent.appendLine(" * @throws IllegalArgumentException If the packet is not of this type.");
+		indent.appendLine(" */");
+		indent.appendLine("public static " + className + " wrap(PacketContainer packet) {");
+		body.appendLine("if (!TYPE.equals(packet.getType())) {");
+		body.incrementIndent().appendLine("throw new IllegalArgumentException(packet.getHandle() + \" is not a packet of type \" + TYPE);");
+		body.appendLine("}");
+		body.appendLine(className + " wrapper = POOL.get();");
+		body.appendLine("wrapper.handle = packet;");
+		body.appendLine("return wrapper;");
+		indent.appendLine("}" + NEWLN);
+	}
+
+	/**
+	 * Write a default constructor that copies a packet with its defaults written once per type.
+	 */
+	private void writePrototypeConstructor(IndentBuilder indent, String className) throws IOException {
+		indent.appendLine("private static final PacketContainer PROTOTYPE = createPrototype();" + NEWLN);
+
+		indent.appendLine("private static PacketContainer createPrototype() {");
+		indent.incrementIndent().appendLine("PacketContainer packet = new PacketContainer(TYPE);")
+				.appendLine("packet.getModifier().writeDefaults();")
+				.appendLine("return packet;");
+		indent.appendLine("}" + NEWLN);
+
+		indent.appendLine("public " + className + "() {");
+		indent.incrementIndent().appendLine("super(PROTOTYPE.shallowClone(), TYPE);");
+		indent.appendLine("}" + NEWLN);
+	}
+
+	/**
+	 * Determine if the default value of every field in a packet can be shared between packets.
+	 * <p>
+	 * Default arrays are empty, so they are safe to share as well.
+	 */
+	private boolean hasImmutableDefaults(Class<?> packetClass) {
+		for (Class<?> clazz = packetClass; clazz != null && !clazz.equals(Object.class); clazz = clazz.getSuperclass()) {
+			for (Field field : clazz.getDeclaredFields()) {
+				if (Modifier.isStatic(field.getModifiers())) {
+					continue;
+				}
+				Class<?> type = field.getType();
+
+				while (type.isArray()) {
+					type = type.getComponentType();
+				}
+				if (!type.isPrimitive() && !type.isEnum() && !IMMUTABLE_TYPES.contains(type)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Write methods that compare the content of two packets of this type, field by field in network order.
+	 * <p>
+	 * Each field is also given a bit in the result of diff(), up to the 64th field.
+	 */
+	private void writeContentMethods(IndentBuilder indent, String className, List<Accessor> accessors) throws IOException {
+		IndentBuilder body = indent.incrementIndent();
+		int bits = Math.min(accessors.size(), Long.SIZE);
+
+		for (int i = 0; i < bits; i++) {
+			indent.appendLine("public static final long " + getConstantName(accessors.get(i).name()) + "_CHANGED = 1L << " + i + ";");
+		}
+		if (bits > 0) {
+			indent.appendLine("");
+		}
+
+		indent.appendLine("/**");
+		indent.appendLine(" * Determine if another packet has the same content as this packet.");
+		indent.appendLine(" * @param other - the other packet.");
+		indent.appendLine(" * @return TRUE if every field is equal, FALSE otherwise.");
+		indent.appendLine(" */");
+		indent.appendLine("public boolean contentEquals(" + className + " other) {");
+		if (accessors.isEmpty()) {
+			body.appendLine("return true;");
+		} else {
+			StringJoiner conditions = new StringJoiner(" &&" + NEWLN + "        ");
+
+			for (Accessor accessor : accessors) {
+				conditions.add(getEqualsExpression(accessor.type(), "get" + accessor.name() + "()", "other.get" + accessor.name() + "()"));
+			}
+			body.appendLine("return " + conditions + ";");
+		}
+		indent.appendLine("}" + NEWLN);
+
+		indent.appendLine("/**");
+		indent.appendLine(" * Compute a hash code from the content of this packet, consistent with contentEquals.");
+		indent.appendLine(" * @return The hash code.");
+		indent.appendLine(" */");
+		indent.appendLine("public int contentHash() {");
+		body.appendLine("int result = 1;");
+		for (Accessor accessor : accessors) {
+			body.appendLine("result = 31 * result + " + getHashExpression(accessor.type(), "get" + accessor.name() + "()") + ";");
+		}
+		body.appendLine("return result;");
+		indent.appendLine("}" + NEWLN);
+
+		indent.appendLine("/**");
+		indent.appendLine(" * Determine which fields differ from another packet.");
+		indent.appendLine(" * @param other - the other packet.");
+		indent.appendLine(" * @return A bitmask of the *_CHANGED constants of every field that is different.");
+		indent.appendLine(" */");
+		indent.appendLine("public long diff(" + className + " other) {");
+		body.appendLine("long result = 0;");
+		for (int i = 0; i < bits; i++) {
+			Accessor accessor = accessors.get(i);
+			body.appendLine("if (!(" + getEqualsExpression(accessor.type(), "get" + accessor.name() + "()", "other.get" + accessor.name() + "()") + ")) {");
+			body.incrementIndent().appendLine("result |= " + getConstantName(accessor.name()) + "_CHANGED;");
+			body.appendLine("}");
+		}
+		body.appendLine("return result;");
+		indent.appendLine("}" + NEWLN);
+	}
+
+	/**
+	 * Retrieve an expression that compares two values of the given type.
+	 */
+	private String getEqualsExpression(String type, String first, String second) {
+		if (type.equals("float") || type.equals("double")) {
+			return getBoxedType(type) + ".compare(" + first + ", " + second + ") == 0";
+		} else if (PRIMITIVE_NAMES.contains(type)) {
+			return first + " == " + second;
+		} else if (type.endsWith("[][]")) {
+			return "Arrays.deepEquals(" + first + ", " + second + ")";
+		} else if (type.endsWith("[]")) {
+			return "Arrays.equals(" + first + ", " + second + ")";
+		} else {
+			return "Objects.equals(" + first + ", " + second + ")";
+		}
+	}
+
+	/**
+	 * Retrieve an expression that computes the hash code of a value of the given type.
+	 */
+	private String getHashExpression(String type, String value) {
+		if (PRIMITIVE_NAMES.contains(type)) {
+			return getBoxedType(type) + ".hashCode(" + value + ")";
+		} else if (type.endsWith("[][]")) {
+			return "Arrays.deepHashCode(" + value + ")";
+		} else if (type.endsWith("[]")) {
+			return "Arrays.hashCode(" + value + ")";
+		} else {
+			return "Objects.hashCode(" + value + ")";
+		}
+	}
+
+	/**
+	 * Write a nested class with predicates that read the fields of a packet through the Direct class.
+	 * <p>
+	 * The predicates check the packet type first, so they can be used on any packet.
+	 */
+	private void writeFilterClass(IndentBuilder indent, List<Accessor> accessors) throws IOException {
+		IndentBuilder body = indent.incrementIndent();
+		IndentBuilder lambda = body.incrementIndent();
+
+		indent.appendLine("private static final Filter FILTER = new Filter();" + NEWLN);
+
+		indent.appendLine("/**");
+		indent.appendLine(" * Retrieve predicates that test the fields of this packet, without creating a wrapper.");
+		indent.appendLine(" * @return The predicates.");
+		indent.appendLine(" */");
+		indent.appendLine("public static Filter filter() {");
+		body.appendLine("return FILTER;");
+		indent.appendLine("}" + NEWLN);
+
+		indent.appendLine("/**");
+		indent.appendLine(" * Predicates that test the fields of this packet.");
+		indent.appendLine(" */");
+		indent.appendLine("public static final class Filter {");
+		body.appendLine("private Filter() {");
+		lambda.appendLine("// Use filter()");
+		body.appendLine("}" + NEWLN);
+
+		for (Accessor accessor : accessors) {
+			String type = getDirectType(accessor.field().getType());
+			String getter = "Direct.get" + accessor.name() + "(packet.getHandle())";
+			String prefix = "return packet -> TYPE.equals(packet.getType()) && ";
+
+			if (!accessor.field().getType().isPrimitive() && !type.equals("String")) {
+				continue;
+			}
+
+			body.appendLine("public Predicate<PacketContainer> " + accessor.getComponentName() + "Is(" + type + " value) {");
+			if (type.equals("String")) {
+				lambda.appendLine(prefix + "value.equals(" + getter + ");");
+			} else if (type.equals("float") || type.equals("double")) {
+				lambda.appendLine(prefix + getBoxedType(type) + ".compare(" + getter + ", value) == 0;");
+			} else {
+				lambda.appendLine(prefix + getter + " == value;");
+			}
+			body.appendLine("}" + NEWLN);
+
+			if (type.equals("String")) {
+				body.appendLine("public Predicate<PacketContainer> " + accessor.getComponentName() + "In(Set<String> values) {");
+				lambda.appendLine(prefix + "values.contains(" + getter + ");");
+				body.appendLine("}" + NEWLN);
+
+			} else if (type.equals("byte") || type.equals("short") || type.equals("int") || type.equals("long")) {
+				// Binary search does not allocate, unlike a set of boxed values
+				body.appendLine("public Predicate<PacketContainer> " + accessor.getComponentName() + "In(" + type + "... values) {");
+				lambda.appendLine(type + "[] sorted = values.clone();");
+				lambda.appendLine("Arrays.sort(sorted);");
+				lambda.appendLine(prefix + "Arrays.binarySearch(sorted, " + getter + ") >= 0;");
+				body.appendLine("}" + NEWLN);
+			}
+		}
+		indent.appendLine("}" + NEWLN);
+	}
+
+	/**
+	 * Write a nested class that accesses the fields of the underlying packet through VarHandles.
+	 * <p>
+	 * The handles are held in static final fields, so the JIT can inline them like ordinary field accesses.
+	 */
+	private void writeDirectClass(IndentBuilder indent, CodePacketInfo codeInfo, List<Accessor> accessors) throws IOException {
+		IndentBuilder body = indent.incrementIndent();
+		Class<?> packetClass = codeInfo.getType().getPacketClass();
+
+		indent.appendLine("/**");
+		indent.appendLine(" * Direct access to the fields of the packet, without any reflection after the class is initialized.");
+		indent.appendLine(" * <p>");
+		indent.appendLine(" * Every method takes the raw packet, as returned by {@link PacketContainer#getHandle()}.");
+		indent.appendLine(" */");
+		indent.appendLine("public static final class Direct {");
+
+		for (Accessor accessor : accessors) {
+			body.appendLine("private static final VarHandle " + accessor.getHandleName() + ";");
+		}
+		body.appendLine("");
+
+		body.appendLine("static {");
+		body.incrementIndent().appendLine("try {");
+		for (Accessor accessor : accessors) {
+			body.incrementIndent().incrementIndent().appendLine(accessor.getHandleName() + " = findVarHandle(" +
+					getClassReference(packetClass, accessor.field().getDeclaringClass()) + ", \"" + accessor.field().getName() + "\");");
+		}
+		body.incrementIndent().appendLine("} catch (ReflectiveOperationException e) {");
+		body.incrementIndent().incrementIndent().appendLine("throw new ExceptionInInitializerError(e);");
+		body.incrementIndent().appendLine("}");
+		body.appendLine("}" + NEWLN);
+
+		body.appendLine("private Direct() {");
+		body.incrementIndent().appendLine("// Not constructable");
+		body.appendLine("}" + NEWLN);
+
+		body.appendLine("private static VarHandle findVarHandle(Class<?> owner, String name) throws ReflectiveOperationException {");
+		body.incrementIndent().appendLine("return MethodHandles.privateLookupIn(owner, MethodHandles.lookup()).unreflectVarHandle(owner.getDeclaredField(name));");
+		body.appendLine("}" + NEWLN);
+
+		for (Accessor accessor : accessors) {
+			String fieldType = getDirectType(accessor.field().getType());
+			String cast = fieldType.equals("Object") ? "" : "(" + fieldType + ") ";
+
+			body.appendLine("public static " + fieldType + " get" + accessor.name() + "(Object handle) {");
+			body.incrementIndent().appendLine("return " + cast + accessor.getHandleName() + ".get(handle);");
+			body.appendLine("}" + NEWLN);
+
+			body.appendLine("public static void set" + accessor.name() + "(Object handle, " + fieldType + " value) {");
+			body.incrementIndent().appendLine(accessor.getHandleName() + ".set(handle, value);");
+			body.appendLine("}" + NEWLN);
+		}
+		indent.appendLine("}");
+	}
+
+	/**
+	 * Retrieve the type a field is exposed as in the Direct class.
+	 * <p>
+	 * NMS and other version dependent types are exposed as Object.
+	 */
+	private String getDirectType(Class<?> type) {
+		Class<?> component = type;
+
+		while (component.isArray()) {
+			component = component.getComponentType();
+		}
+
+		if (component.isPrimitive() || component.equals(String.class)) {
+			return type.getSimpleName();
+		} else {
+			return "Object";
+		}
+	}
+
+	/**
+	 * Retrieve an expression that evaluates to a class in the hierarchy of the packet, without naming it.
+	 */
+	private String getClassReference(Class<?> packetClass, Class<?> target) {
+		StringBuilder result = new StringBuilder("TYPE.getPacketClass()");
+
+		for (Class<?> clazz = packetClass; !clazz.equals(target); clazz = clazz.getSuperclass()) {
+			result.append(".getSuperclass()");
+		}
+		return result.toString();
 	}
 
 	private String getFieldName(WikiPacketField field) {
@@ -275,69 +1690,112 @@ public class WrapperGenerator {
 	}
 
 	private String getFieldType(WikiPacketField field) {
-		// Most are primitive
-		String type = field.getFieldType().toLowerCase();
-
-		// Better names
-		type = type.replace("string", "String")
-				.replace("slot", "ItemStack")
-				.replace("metadata", "WrappedDataWatcher")
-				.replace("unsigned", "")
-				.replace("optional", "")
-				.replace( "varint enum", "enum" )
-				.replace("varint", "int")
-				.replace("bool", "boolean")
-				.replace("Boolean", "boolean")
-				.replace("uuid", "UUID")
-				.replace( "inputitem1", "ItemStack" )
-				.replace( "inputitem2", "ItemStack" )
-				.replace(" ", "");
-
-		// Detect arrays
-		if (type.contains("array")) {
-			return (getLongestWord(type.split("\\s+"), ignoreArray).replace("array", "") + "[]").replace("of", "");
-		} else {
-			return type;
-		}
+		return typeNormalizer.normalize(field.getFieldType());
 	}
 
-	private String getLongestWord(String[] input, Set<String> blacklist) {
-		int selected = 0;
+	/**
+	 * Retrieve an expression that reads a field of the packet.
+	 */
+	private String getReadCall(int fieldIndex, String name, CodePacketInfo codeInfo) {
+		Modifiers modifier = getModifier(fieldIndex, codeInfo);
 
-		// Find a longer word that is not on the black list
-		for (int i = 1; i < input.length; i++) {
-			if (!blacklist.contains(input[i]) && input[i].length() > input[selected].length()) {
-				selected = i;
-			}
+		if (modifier != null && isFieldAccess(modifier)) {
+			return "(" + getModifierElementType(modifier) + ") " + getAccessorName(name) + ".get(handle.getHandle())";
 		}
-		return input[selected];
+		return getModifierCall(modifier, fieldIndex, name, codeInfo) + ".read(" + getIndexArgument(fieldIndex, name, codeInfo) + ")";
 	}
 
-	private String getModifierCall(int fieldIndex, String callFormat, CodePacketInfo codeInfo) {
-		Field field = codeInfo.getNetworkOrder().get(fieldIndex);
-		int memoryIndex = 0;
+	/**
+	 * Retrieve a statement that writes a field of the packet.
+	 */
+	private String getWriteCall(int fieldIndex, String name, String value, CodePacketInfo codeInfo) {
+		Modifiers modifier = getModifier(fieldIndex, codeInfo);
 
-		// Find the correct index
-		for (Field compare : codeInfo.getMemoryOrder()) {
-			if (compare.getType().equals(field.getType())) {
-				if (field.equals(compare))
-					break;
-				else
-					memoryIndex++;
-			}
+		if (modifier != null && isFieldAccess(modifier)) {
+			return getAccessorName(name) + ".set(handle.getHandle(), (" + getModifierElementType(modifier) + ") (" + value + "));";
 		}
+		return getModifierCall(modifier, fieldIndex, name, codeInfo) + ".write(" + getIndexArgument(fieldIndex, name, codeInfo) + ", " + value + ");";
+	}
 
-		// The modifier we will use
-		Modifiers modifier = Modifiers.getByInputType(field.getType());
+	private Modifiers getModifier(int fieldIndex, CodePacketInfo codeInfo) {
+		return Modifiers.getByInputType(codeInfo.getNetworkField(fieldIndex).getType());
+	}
+
+	private String getModifierCall(Modifiers modifier, int fieldIndex, String name, CodePacketInfo codeInfo) {
 		String method = modifier != null ? modifier.getMethodName() : "UNKNOWN()";
 
-		return method + String.format(callFormat, memoryIndex);
+		// Converted fields still need the modifier, as it does not expose its converter
+		if (modifier != null && features.contains(Feature.CACHED_INDICES)) {
+			return modifier.name() + ".withTarget(handle.getHandle())";
+		}
+		return "handle." + method;
+	}
+
+	private String getIndexArgument(int fieldIndex, String name, CodePacketInfo codeInfo) {
+		return features.contains(Feature.CACHED_INDICES) ? getIndexName(name) : String.valueOf(codeInfo.getMemoryIndex(fieldIndex));
+	}
+
+	/**
+	 * Retrieve the name of the constant that holds the field accessor of a field.
+	 * @param name - the name of the field in the generated methods, such as EntityID.
+	 * @return The constant name, such as ENTITY_ID_ACCESSOR.
+	 */
+	private static String getAccessorName(String name) {
+		return getConstantName(name) + "_ACCESSOR";
+	}
+
+	/**
+	 * Determine if a field is read and written through a cached field accessor, instead of a copy of its structure modifier.
+	 */
+	private boolean isFieldAccess(Modifiers modifier) {
+		return features.contains(Feature.CACHED_INDICES) && !modifier.isConverted() && !isPrimitiveAccess(modifier);
+	}
+
+	/**
+	 * Retrieve the name of the constant that holds the memory index of a field.
+	 * @param name - the name of the field in the generated methods, such as EntityID.
+	 * @return The constant name, such as ENTITY_ID_INDEX.
+	 */
+	private static String getIndexName(String name) {
+		return getConstantName(name) + "_INDEX";
+	}
+
+	/**
+	 * Convert the name of a field in the generated methods to the style of a constant, such as ENTITY_ID.
+	 */
+	private static String getConstantName(String name) {
+		return name.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toUpperCase(Locale.ENGLISH);
+	}
+
+	/**
+	 * Determine if a field should bypass its StructureModifier, to avoid boxing the value.
+	 */
+	private boolean isPrimitiveAccess(Modifiers modifier) {
+		return features.contains(Feature.PRIMITIVE_ACCESSORS) && modifier.getInputType().isPrimitive();
 	}
 
 	private String getReference(PacketType type) {
 		return "PacketType." + Wrappit.getCamelCase(type.getProtocol()) + "." + Wrappit.getCamelCase(type.getSender()) + "." + type.name();
 	}
 
+	/**
+	 * Retrieve the type a field is exposed as in its getter and setter.
+	 */
+	private String getAccessorType(Modifiers modifier, WikiPacketField field) {
+		String type = getFieldType(field);
+
+		if (modifier.isWrapper()) {
+			return modifier.getOutputType();
+		}
+
+		// Pattern I noticed fixing wrappers
+		if ((modifier.getOutputType().equalsIgnoreCase("int") || modifier.getOutputType().equalsIgnoreCase("float"))
+				&& (type.equalsIgnoreCase("byte") || type.equalsIgnoreCase("short"))) {
+			return modifier.getOutputType();
+		}
+		return type;
+	}
+
 	private void writeGetMethod(IndentBuilder indent, int fieldIndex, Modifiers modifier, CodePacketInfo codeInfo, WikiPacketField field)
 			throws IOException {
 
@@ -347,23 +1805,14 @@ public class WrapperGenerator {
 		}
 
 		String name = getFieldName(field);
-		String outputType = getFieldType(field);
+		String outputType = getAccessorType(modifier, field);
 		String casting = "";
 
 		// Simple attempt at casting
-		if (modifier.isWrapper()) {
-			outputType = modifier.getOutputType();
-		} else if (!modifier.getOutputType().equals(outputType)) {
+		if (!modifier.getOutputType().equals(outputType)) {
 			casting = " (" + outputType + ")";
 		}
 
-		// Pattern I noticed fixing wrappers
-		if ((modifier.getOutputType().equalsIgnoreCase("int") || modifier.getOutputType().equalsIgnoreCase("float"))
-				&& (outputType.equalsIgnoreCase("byte") || outputType.equalsIgnoreCase("short"))) {
-			outputType = modifier.getOutputType();
-			casting = "";
-		}
-
 		String note = CaseFormating.toLowerCaseRange(field.getNotes(), 0, 1).trim();
 
 		// Comment
@@ -377,7 +1826,11 @@ public class WrapperGenerator {
 		indent.appendLine(" */");
 
 		indent.appendLine("public " + outputType + " get" + name + "() {");
-		indent.incrementIndent().appendLine("return" + casting + " handle." + getModifierCall(fieldIndex, ".read(%s);", codeInfo));
+		if (isPrimitiveAccess(modifier)) {
+			indent.incrementIndent().appendLine("return" + casting + " Direct.get" + name + "(handle.getHandle());");
+		} else {
+			indent.incrementIndent().appendLine("return" + casting + " " + getReadCall(fieldIndex, name, codeInfo) + ";");
+		}
 		indent.appendLine("}" + NEWLN);
 
 		// Generate getEntity methods
@@ -386,6 +1839,40 @@ public class WrapperGenerator {
 		}
 	}
 
+	/**
+	 * Write a getter that wraps an array field in a read-only buffer, and a setter that takes a range of an array.
+	 */
+	private void writeBufferMethods(IndentBuilder indent, int fieldIndex, Modifiers modifier, CodePacketInfo codeInfo, WikiPacketField field)
+			throws IOException {
+		String name = getFieldName(field);
+		String element = modifier == Modifiers.BYTE_ARRAYS ? "byte" : "int";
+		String buffer = modifier == Modifiers.BYTE_ARRAYS ? "ByteBuffer" : "IntBuffer";
+		IndentBuilder body = indent.incrementIndent();
+
+		indent.appendLine("/**");
+		indent.appendLine(" * Retrieve a read-only view of " + field.getFieldName() + ", without copying it.");
+		indent.appendLine(" * @return The view, or NULL if the field is NULL.");
+		indent.appendLine(" */");
+		indent.appendLine("public " + buffer + " get" + name + "Buffer() {");
+		body.appendLine(element + "[] array = " + getReadCall(fieldIndex, name, codeInfo) + ";");
+		body.appendLine("return array != null ? " + buffer + ".wrap(array).asReadOnlyBuffer() : null;");
+		indent.appendLine("}" + NEWLN);
+
+		indent.appendLine("/**");
+		indent.appendLine(" * Set " + field.getFieldName() + " to a range of an array.");
+		indent.appendLine(" * <p>");
+		indent.appendLine(" * The array is used as is if the range covers all of it, otherwise only the range is copied.");
+		indent.appendLine(" * @param array - the array.");
+		indent.appendLine(" * @param offset - the index of the first element.");
+		indent.appendLine(" * @param length - the number of elements.");
+		indent.appendLine(" */");
+		indent.appendLine("public void set" + name + "(" + element + "[] array, int offset, int length) {");
+		body.appendLine("Objects.checkFromIndexSize(offset, length, array.length);");
+		body.appendLine(getWriteCall(fieldIndex, name, "offset == 0 && length == array.length ? array : " +
+				"Arrays.copyOfRange(array, offset, offset + length)", codeInfo));
+		indent.appendLine("}" + NEWLN);
+	}
+
 	private static final List<String> GET_ENTITY_LINES = Arrays.asList(
 			"/**",
 			" * Retrieve the entity involved in this event.",
@@ -420,22 +1907,13 @@ public class WrapperGenerator {
 		}
 
 		String name = getFieldName(field);
-		String inputType = getFieldType(field);
+		String inputType = getAccessorType(modifier, field);
 		String casting = "";
 
-		if (modifier.isWrapper()) {
-			inputType = modifier.getOutputType();
-		} else if (!modifier.getOutputType().equals(inputType)) {
+		if (!modifier.getOutputType().equals(inputType)) {
 			casting = " (" + modifier.getOutputType() + ")";
 		}
 
-		// Pattern I noticed fixing wrappers
-		if ((modifier.getOutputType().equalsIgnoreCase("int") || modifier.getOutputType().equalsIgnoreCase("float"))
-				&& (inputType.equalsIgnoreCase("byte") || inputType.equalsIgnoreCase("short"))) {
-			inputType = modifier.getOutputType();
-			casting = "";
-		}
-
 		// String note = CaseFormating.toLowerCaseRange(field.getNotes(), 0, 1).trim();
 
 		// Comment
@@ -445,7 +1923,45 @@ public class WrapperGenerator {
 		indent.appendLine(" */");
 
 		indent.appendLine("public void set" + name + "(" + inputType + " value) {");
-		indent.incrementIndent().appendLine("handle." + getModifierCall(fieldIndex, ".write(%s," + casting + " value);", codeInfo));
+		if (isPrimitiveAccess(modifier)) {
+			indent.incrementIndent().appendLine("Direct.set" + name + "(handle.getHandle()," + casting + " value);");
+		} else {
+			indent.incrementIndent().appendLine(getWriteCall(fieldIndex, name, (casting + " value").trim(), codeInfo));
+		}
 		indent.appendLine("}\n");
 	}
-}
+
+	/**
+	 * A field we have generated a getter and setter for.
+	 *
+	 * @param fieldIndex - the index of the field in the network order.
+	 * @param field - the field in the packet class.
+	 * @param name - the name used in the generated methods.
+	 * @param type - the type used in the generated methods.
+	 * @param modifier - the structure modifier that can access the field.
+	 * @param memoryIndex - the index of the field in the structure modifier.
+	 */
+	private record Accessor(int fieldIndex, Field field, String name, String type, Modifiers modifier, int memoryIndex) {
+		public String getHandleName() {
+			return "FIELD_" + fieldIndex;
+		}
+
+		public String getIndexName() {
+			return WrapperGenerator.getIndexName(name);
+		}
+
+		public String getComponentName() {
+			String result = CaseFormating.toLowerCaseRange(name, 0, 1);
+			return SourceVersion.isKeyword(result) ? result + "Value" : result;
+		}
+	}
+
+	/**
+	 * The result of generating a wrapper.
+	 *
+	 * @param source - the source code of the wrapper.
+	 * @param attributes - the attributes the classes that cover every packet need.
+	 */
+	public record GeneratedWrapper(String source, Map<String, String> attributes) {
+	}
+}
\ No newline at end of file
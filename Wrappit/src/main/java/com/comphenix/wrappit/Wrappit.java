@@ -22,19 +22,44 @@
  */
 package com.comphenix.wrappit;
 
+import java.io.Closeable;
 import java.io.File;
-import java.util.Arrays;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import com.comphenix.protocol.PacketType;
 import com.comphenix.protocol.utility.Constants;
 import com.comphenix.protocol.utility.MinecraftReflection;
 import com.comphenix.protocol.utility.MinecraftVersion;
+import com.comphenix.wrappit.io.GenerationManifest;
 import com.comphenix.wrappit.io.IOUtil;
+import com.comphenix.wrappit.io.OutputCapture;
+import com.comphenix.wrappit.minecraft.CodePacketInfo;
 import com.comphenix.wrappit.minecraft.CodePacketReader;
+import com.comphenix.wrappit.minecraft.JarSchemaReader;
+import com.comphenix.wrappit.minecraft.SchemaCache;
 import com.comphenix.wrappit.test.WrapperTest;
+import com.comphenix.wrappit.wiki.WikiPacketField;
+import com.comphenix.wrappit.wiki.WikiPacketInfo;
 import com.comphenix.wrappit.wiki.WikiPacketReader;
+import com.comphenix.wrappit.wiki.WikiTypeNormalizer;
 import com.google.common.base.CaseFormat;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 
 import joptsimple.OptionParser;
 import joptsimple.OptionSet;
@@ -42,9 +67,27 @@ import net.minecraft.server.v1_16_R3.*;
 import org.bukkit.craftbukkit.v1_16_R3.CraftServer;
 
 public class Wrappit {
+	private static final String MANIFEST_NAME = ".wrappit-manifest";
+
 	private static File wikiPage = null;
 	private static File packetWrapper = null;
 	private static boolean test = false;
+	private static int threads = 1;
+	private static boolean incremental = false;
+	private static File serverJar = null;
+	private static File schemaCacheFile = null;
+	private static File wikiTypesFile = null;
+	private static Set<WrapperGenerator.Feature> features = EnumSet.noneOf(WrapperGenerator.Feature.class);
+
+	private final CodePacketReader codeReader;
+	private final WikiPacketReader wikiReader;
+	private final WrapperGenerator generator;
+
+	private GenerationManifest manifest;
+	private SchemaCache schemaCache;
+
+	// Attributes of every wrapper, including the ones that were up to date
+	private final Map<PacketType, Map<String, String>> attributes = new ConcurrentHashMap<>();
 
 	public static void main(String[] args) {
 		generate(new String[] { "--wikiPage", "C:/Users/Niklas/Desktop/protocol.html" });
@@ -64,10 +107,29 @@ public class Wrappit {
 			accepts("wikiPage").withRequiredArg().ofType(File.class);
 			accepts("packetWrapper").withOptionalArg().ofType(File.class);
 			accepts("flagOnly");
+			accepts("threads").withRequiredArg().ofType(Integer.class);
+			accepts("incremental");
+			accepts("serverJar").withRequiredArg().ofType(File.class);
+			accepts("schemaCache").withRequiredArg().ofType(File.class);
+			accepts("feature").withRequiredArg().ofType(String.class);
+			accepts("wikiTypes").withRequiredArg().ofType(File.class);
 		}};
 
 		OptionSet options = parser.parse(args);
 		wikiPage = (File) options.valueOf("wikiPage");
+		if (options.has("threads")) {
+			threads = (Integer) options.valueOf("threads");
+			if (threads <= 0) {
+				threads = Runtime.getRuntime().availableProcessors();
+			}
+		}
+		incremental = options.has("incremental");
+		serverJar = (File) options.valueOf("serverJar");
+		schemaCacheFile = (File) options.valueOf("schemaCache");
+		wikiTypesFile = (File) options.valueOf("wikiTypes");
+		for (Object feature : options.valuesOf("feature")) {
+			features.add(WrapperGenerator.Feature.fromName((String) feature));
+		}
 		if (test = options.has("test")) {
 			if (options.has("packets")) {
 				packetWrapper = (File) options.valueOf("packetWrapper");
@@ -94,34 +156,290 @@ public class Wrappit {
 		MinecraftReflection.setMinecraftPackage(Constants.NMS, Constants.OBC);
 		MinecraftVersion.setCurrentVersion(Constants.CURRENT_VERSION);
 
-		CodePacketReader codeReader = new CodePacketReader();
-		WikiPacketReader wikiReader = new WikiPacketReader(wikiPage);
-		// WikiPacketReader wikiReader = new WikiPacketReader();
-		WrapperGenerator generator = new WrapperGenerator(codeReader, wikiReader);
+		if (schemaCacheFile != null) {
+			File jar = serverJar != null ? serverJar :
+					new File(MinecraftReflection.getPacketClass().getProtectionDomain().getCodeSource().getLocation().toURI());
+			schemaCache = SchemaCache.open(schemaCacheFile, jar);
+		}
+
+		// The server jar stays open until every packet has been read
+		try (JarSchemaReader schemaReader = openSchemaReader()) {
+			codeReader = new CodePacketReader(schemaReader, schemaCache);
+			wikiReader = new WikiPacketReader(wikiPage);
+			// wikiReader = new WikiPacketReader();
+			generator = new WrapperGenerator(codeReader, wikiReader, features,
+					wikiTypesFile != null ? WikiTypeNormalizer.load(wikiTypesFile) : WikiTypeNormalizer.getDefault());
 
-		File folder = new File("Packets");
-		if (folder.exists())
-			folder.delete();
-		folder.mkdirs();
+			File folder = new File("Packets");
+			if (incremental) {
+				folder.mkdirs();
+				manifest = GenerationManifest.load(new File(folder, MANIFEST_NAME));
+			} else {
+				if (folder.exists())
+					folder.delete();
+				folder.mkdirs();
+			}
 
-		System.out.println("Generating wrappers...");
-		System.out.println("Saving packets to " + folder.getAbsolutePath());
+			System.out.println("Generating wrappers...");
+			System.out.println("Saving packets to " + folder.getAbsolutePath());
 
-		for (PacketType type : PacketType.values()) {
+			List<PacketType> types = new ArrayList<>();
+			for (PacketType type : PacketType.values()) {
+				types.add(type);
+			}
+
+			Set<String> completed;
+			if (threads > 1) {
+				completed = generateParallel(folder, types);
+			} else {
+				completed = generateSequential(folder, types);
+			}
+
+			// The classes that cover every packet are cheap to generate, so they are always written
+			Map<PacketType, Map<String, String>> wrapped = new LinkedHashMap<>();
+			for (PacketType type : types) {
+				if (completed.contains(getClassName(type))) {
+					wrapped.put(type, attributes.getOrDefault(type, Collections.emptyMap()));
+				}
+			}
+			writeSource(new File(folder, "PacketWrappers.java"), output -> {
+				generator.generateRegistry(wrapped.keySet(), output);
+				return null;
+			});
+			writeSource(new File(folder, "EntityIdExtractors.java"), output -> {
+				generator.generateEntityIdExtractors(wrapped, output);
+				return null;
+			});
+
+			if (generator.getFeatures().contains(WrapperGenerator.Feature.COALESCING)) {
+				if (generator.canGenerateMovementCoalescer(wrapped)) {
+					writeSource(new File(folder, "MovementCoalescer.java"), output -> {
+						generator.generateMovementCoalescer(wrapped, output);
+						return null;
+					});
+				} else {
+					System.err.println("Cannot generate MovementCoalescer - the relative move, move and look or teleport wrappers lack entity ID, delta or on ground accessors");
+				}
+			}
+
+			if (manifest != null) {
+				// Failed packets are dropped, so they are retried the next time
+				manifest.retain(completed);
+				manifest.save();
+			}
+			if (schemaCache != null) {
+				schemaCache.save();
+			}
+		}
+
+		System.out.println("Done!");
+	}
+
+	/**
+	 * Open the server jar, if one is given.
+	 * <p>
+	 * The jar is opened even if every schema is cached, as the bytecode is hashed from it. Only the write methods
+	 * of uncached packets are analyzed.
+	 * @return The schema reader, or NULL if there is no server jar.
+	 * @throws IOException If the server jar cannot be read.
+	 */
+	private JarSchemaReader openSchemaReader() throws IOException {
+		if (serverJar == null)
+			return null;
+
+		long start = System.nanoTime();
+		JarSchemaReader schemaReader = new JarSchemaReader(serverJar);
+
+		System.out.println("Read packet schemas from " + serverJar + " in " + (System.nanoTime() - start) / 1000000 + " ms");
+		return schemaReader;
+	}
+
+	private Set<String> generateSequential(File folder, List<PacketType> types) {
+		Set<String> completed = new HashSet<>();
+
+		for (PacketType type : types) {
 			try {
-				String className = "Wrapper" + getCamelCase(type.getProtocol()) + getCamelCase(type.getSender()) + getCamelCase(type.name());
-				System.out.println("Generating wrapper for " + type.name() + " " + className + " for " + type);
-				File file = new File(folder, className + ".java");
-				file.createNewFile();
-				IOUtil.writeLines(file, Collections.singletonList( generator.generateClass( type ) ) );
+				System.out.println("Generating wrapper for " + type.name() + " " + getClassName(type) + " for " + type);
+				PacketInput input = readPacket(folder, type);
+
+				if (input != null) {
+					writeWrapper(folder, input);
+				} else {
+					System.out.println("Wrapper " + getClassName(type) + " is up to date");
+				}
+				completed.add(getClassName(type));
 			} catch (Throwable ex) {
-				System.err.println("Failed to generate wrapper for " + type.name() + " - deprecated: " + type.isDeprecated());
-				if ( !type.isDeprecated() )
-					ex.printStackTrace();
+				reportFailure(type, ex);
 			}
 		}
+		return completed;
+	}
 
-		System.out.println("Done!");
+	/**
+	 * Generate every wrapper using a pool of worker threads.
+	 * <p>
+	 * Each packet is read, then generated straight into its file, as separate stages. The resulting files are identical
+	 * to the sequential mode. Everything a packet prints is held back and printed in the same order as the packet types,
+	 * so the log is the same as well.
+	 */
+	private Set<String> generateParallel(File folder, List<PacketType> types) throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<CompletableFuture<Boolean>> results = new ArrayList<>();
+		List<OutputCapture> outputs = new ArrayList<>();
+		Set<String> completed = new HashSet<>();
+
+		System.out.println("Using " + threads + " worker threads");
+
+		try (Closeable redirect = OutputCapture.redirect()) {
+			for (PacketType type : types) {
+				OutputCapture output = new OutputCapture();
+
+				// The stages run one after the other, so they can share the capture
+				outputs.add(output);
+				results.add(CompletableFuture
+						.supplyAsync(() -> {
+							try {
+								return output.capture(() -> readPacket(folder, type));
+							} catch (Exception ex) {
+								throw new CompletionException(ex);
+							}
+						}, executor)
+						.thenApplyAsync(input -> {
+							if (input == null)
+								return false;
+
+							try {
+								return output.capture(() -> {
+									writeWrapper(folder, input);
+									return true;
+								});
+							} catch (Exception ex) {
+								throw new CompletionException(ex);
+							}
+						}, executor));
+			}
+
+			for (int i = 0; i < types.size(); i++) {
+				PacketType type = types.get(i);
+				CompletableFuture<Boolean> result = results.get(i);
+
+				// Wait for the packet to finish before printing its output
+				result.handle((generated, ex) -> null).join();
+				System.out.println("Generating wrapper for " + type.name() + " " + getClassName(type) + " for " + type);
+				outputs.get(i).replay(System.out, System.err);
+
+				try {
+					if (!result.join()) {
+						System.out.println("Wrapper " + getClassName(type) + " is up to date");
+					}
+					completed.add(getClassName(type));
+				} catch (CompletionException ex) {
+					reportFailure(type, ex.getCause() != null ? ex.getCause() : ex);
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+		return completed;
+	}
+
+	/**
+	 * Read the information needed to generate the wrapper of a packet.
+	 * @param folder - the output folder.
+	 * @param type - the packet type.
+	 * @return The packet information, or NULL if the existing wrapper is up to date.
+	 * @throws IOException If the packet cannot be read.
+	 */
+	private PacketInput readPacket(File folder, PacketType type) throws IOException {
+		String inputHash = null;
+
+		if (manifest != null) {
+			inputHash = computeInputHash(type);
+
+			// Skip the bytecode analysis entirely
+			if (manifest.isUpToDate(getClassName(type), inputHash, getWrapperFile(folder, type))) {
+				attributes.put(type, manifest.getAttributes(getClassName(type)));
+				return null;
+			}
+		}
+		return new PacketInput(codeReader.readPacket(type), wikiReader.readPacket(type), inputHash);
+	}
+
+	/**
+	 * Compute a hash of everything that goes into the wrapper of a packet.
+	 * @param type - the packet type.
+	 * @return The hash, as a hexadecimal string.
+	 * @throws IOException If the packet cannot be found.
+	 */
+	private String computeInputHash(PacketType type) throws IOException {
+		Hasher hasher = Hashing.sha256().newHasher();
+		hasher.putInt(WrapperGenerator.VERSION);
+		hasher.putString(codeReader.computeClassHash(type), StandardCharsets.UTF_8);
+
+		for (WrapperGenerator.Feature feature : generator.getFeatures()) {
+			hasher.putString(feature.name(), StandardCharsets.UTF_8).putByte((byte) 0);
+		}
+
+		for (WikiPacketField field : wikiReader.readPacket(type).getPacketFields()) {
+			// Separate every value, so moving text between cells changes the hash
+			hasher.putString(String.valueOf(field.getFieldName()), StandardCharsets.UTF_8).putByte((byte) 0);
+			hasher.putString(String.valueOf(field.getFieldType()), StandardCharsets.UTF_8).putByte((byte) 0);
+			if (field.getFieldType() != null) {
+				// Covers changes to the type rules
+				hasher.putString(generator.getTypeNormalizer().normalize(field.getFieldType()), StandardCharsets.UTF_8);
+			}
+			hasher.putByte((byte) 0);
+			hasher.putString(field.getNotes(), StandardCharsets.UTF_8).putByte((byte) 0);
+		}
+		return hasher.hash().toString();
+	}
+
+	private File getWrapperFile(File folder, PacketType type) {
+		return new File(folder, getClassName(type) + ".java");
+	}
+
+	private void writeWrapper(File folder, PacketInput input) throws IOException {
+		PacketType type = input.codeInfo().getType();
+		File file = getWrapperFile(folder, type);
+		Map<String, String> wrapperAttributes = writeSource(file, output ->
+				generator.generateWrapper(input.codeInfo(), input.wikiInfo(), output));
+
+		if (manifest != null) {
+			manifest.update(getClassName(type), input.inputHash(), file, wrapperAttributes);
+		}
+		attributes.put(type, wrapperAttributes);
+	}
+
+	private void reportFailure(PacketType type, Throwable ex) {
+		System.err.println("Failed to generate wrapper for " + type.name() + " - deprecated: " + type.isDeprecated());
+		if ( !type.isDeprecated() )
+			ex.printStackTrace();
+	}
+
+	/**
+	 * Generate a source file straight into a buffered writer, so the source is never held in memory.
+	 * <p>
+	 * The file is deleted if it cannot be generated.
+	 * @param file - the source file.
+	 * @param source - writes the source code.
+	 * @return The result of the source writer.
+	 * @throws IOException If we are unable to write the file.
+	 */
+	private <T> T writeSource(File file, SourceWriter<T> source) throws IOException {
+		try (Writer writer = IOUtil.newWriter(file)) {
+			T result = source.write(writer);
+
+			// Like the line written by IOUtil.writeLines
+			writer.write(System.lineSeparator());
+			return result;
+		} catch (Throwable ex) {
+			file.delete();
+			throw ex;
+		}
+	}
+
+	public static String getClassName(PacketType type) {
+		return "Wrapper" + getCamelCase(type.getProtocol()) + getCamelCase(type.getSender()) + getCamelCase(type.name());
 	}
 
 	public static String getCamelCase(Enum<?> enumValue) {
@@ -131,4 +449,16 @@ public class Wrappit {
 	public static String getCamelCase(String text) {
 		return CaseFormat.UPPER_UNDERSCORE.to(CaseFormat.UPPER_CAMEL, text);
 	}
-}
+
+	/**
+	 * The packet information a wrapper is generated from.
+	 */
+	private record PacketInput(CodePacketInfo codeInfo, WikiPacketInfo wikiInfo, String inputHash) { }
+
+	/**
+	 * Writes the source code of a class.
+	 */
+	private interface SourceWriter<T> {
+		T write(Appendable output) throws IOException;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,202 @@
+/*
+  Copyright (C) dmulloy2 <http://dmulloy2.net>
+  Copyright (C) Kristian S. Strangeland
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in
+  all copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+  THE SOFTWARE.
+ */
+package com.comphenix.wrappit.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang.Validate;
+
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+
+/**
+ * Keeps track of the inputs every generated file was created from, so unchanged files can be skipped.
+ * <p>
+ * Each entry stores a hash of the inputs and a hash of the resulting file. A file is only considered
+ * up to date if both hashes still match. Entries may also store attributes of the generated file, so
+ * files that depend on every generated file can be written without generating them again.
+ */
+
+public class GenerationManifest
+{
+	private final File file;
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+	private GenerationManifest(File file)
+	{
+		this.file = file;
+	}
+
+	/**
+	 * Loads a manifest from the given file, or creates an empty one if it does not exist.
+	 *
+	 * @param file Manifest file
+	 * @return The manifest
+	 * @throws IOException If the manifest cannot be read
+	 */
+	public static GenerationManifest load(File file) throws IOException
+	{
+		Validate.notNull(file, "file cannot be null!");
+
+		GenerationManifest manifest = new GenerationManifest(file);
+		if (! file.exists())
+			return manifest;
+
+		for (String line : IOUtil.readLines(file))
+		{
+			String[] data = line.trim().split(" ");
+			if (data.length < 3)
+				continue;
+
+			Map<String, String> attributes = new TreeMap<>();
+			for (int i = 3; i < data.length; i++)
+			{
+				int split = data[i].indexOf('=');
+				if (split > 0)
+					attributes.put(data[i].substring(0, split), data[i].substring(split + 1));
+			}
+
+			manifest.entries.put(data[0], new Entry(data[1], data[2], attributes));
+		}
+
+		return manifest;
+	}
+
+	/**
+	 * Determines whether a generated file is still up to date.
+	 *
+	 * @param name Name of the entry
+	 * @param inputHash Hash of the inputs the file would be generated from
+	 * @param output The generated file
+	 * @return True if the file can be reused, false if it must be generated again
+	 * @throws IOException If the generated file cannot be read
+	 */
+	public boolean isUpToDate(String name, String inputHash, File output) throws IOException
+	{
+		Validate.notNull(name, "name cannot be null!");
+		Validate.notNull(inputHash, "inputHash cannot be null!");
+
+		Entry entry = entries.get(name);
+		if (entry == null || ! entry.inputHash().equals(inputHash) || ! output.isFile())
+			return false;
+
+		return entry.outputHash().equals(hashFile(output));
+	}
+
+	/**
+	 * Records that a file has been generated from the given inputs.
+	 *
+	 * @param name Name of the entry
+	 * @param inputHash Hash of the inputs the file was generated from
+	 * @param output The generated file
+	 * @throws IOException If the generated file cannot be read
+	 */
+	public void update(String name, String inputHash, File output) throws IOException
+	{
+		update(name, inputHash, output, Collections.emptyMap());
+	}
+
+	/**
+	 * Records that a file has been generated from the given inputs, along with attributes of the file.
+	 *
+	 * @param name Name of the entry
+	 * @param inputHash Hash of the inputs the file was generated from
+	 * @param output The generated file
+	 * @param attributes Attributes of the file. Keys and values cannot contain spaces
+	 * @throws IOException If the generated file cannot be read
+	 */
+	public void update(String name, String inputHash, File output, Map<String, String> attributes) throws IOException
+	{
+		Validate.notNull(name, "name cannot be null!");
+		Validate.notNull(inputHash, "inputHash cannot be null!");
+		Validate.notNull(attributes, "attributes cannot be null!");
+
+		for (Map.Entry<String, String> attribute : attributes.entrySet())
+		{
+			Validate.isTrue(attribute.getKey().matches("[^\\s=]+") && ! attribute.getValue().matches(".*\\s.*"),
+					"Invalid attribute: " + attribute);
+		}
+
+		entries.put(name, new Entry(inputHash, hashFile(output), new TreeMap<>(attributes)));
+	}
+
+	/**
+	 * Retrieves the attributes recorded for a generated file.
+	 *
+	 * @param name Name of the entry
+	 * @return The attributes, or an empty map if there is no such entry
+	 */
+	public Map<String, String> getAttributes(String name)
+	{
+		Entry entry = entries.get(name);
+		return entry != null ? Collections.unmodifiableMap(entry.attributes()) : Collections.emptyMap();
+	}
+
+	/**
+	 * Removes every entry that is not in the given set of names.
+	 *
+	 * @param names Names to keep
+	 */
+	public void retain(Set<String> names)
+	{
+		entries.keySet().retainAll(names);
+	}
+
+	/**
+	 * Saves this manifest to the file it was loaded from.
+	 *
+	 * @throws IOException If writing fails
+	 */
+	public void save() throws IOException
+	{
+		List<String> lines = new ArrayList<>();
+
+		for (Map.Entry<String, Entry> entry : new TreeMap<>(entries).entrySet())
+		{
+			StringBuilder line = new StringBuilder(entry.getKey());
+			line.append(' ').append(entry.getValue().inputHash()).append(' ').append(entry.getValue().outputHash());
+
+			for (Map.Entry<String, String> attribute : entry.getValue().attributes().entrySet())
+				line.append(' ').append(attribute.getKey()).append('=').append(attribute.getValue());
+
+			lines.add(line.toString());
+		}
+
+		IOUtil.writeLines(file, lines);
+	}
+
+	private static String hashFile(File file) throws IOException
+	{
+		return Files.asByteSource(file).hash(Hashing.sha256()).toString();
+	}
+
+	private record Entry(String inputHash, String outputHash, Map<String, String> attributes) { }
+}
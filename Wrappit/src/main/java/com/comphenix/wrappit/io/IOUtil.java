@@ -30,6 +30,9 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -94,6 +97,20 @@ public class IOUtil
 		closer.close();
 	}
 
+	/**
+	 * Opens a buffered UTF-8 writer to a given file, replacing its content.
+	 *
+	 * @param file File to write to
+	 * @return The writer
+	 * @throws IOException If the file cannot be opened
+	 */
+	public static Writer newWriter(File file) throws IOException
+	{
+		Validate.notNull(file, "file cannot be null!");
+
+		return Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+	}
+
 	/**
 	 * Returns the given {@link File}'s name with the extension omitted.
 	 *
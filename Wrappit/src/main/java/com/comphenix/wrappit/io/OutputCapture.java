@@ -0,0 +1,146 @@
+/*
+  Copyright (C) dmulloy2 <http://dmulloy2.net>
+  Copyright (C) Kristian S. Strangeland
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in
+  all copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+  THE SOFTWARE.
+ */
+package com.comphenix.wrappit.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Holds everything a task prints to System.out and System.err, so it can be printed later in a fixed order.
+ * <p>
+ * Output is only captured while the system streams are redirected by {@link #redirect()}, and only on the
+ * thread that is running {@link #capture(Callable)}. Every other thread prints straight to the console.
+ */
+public class OutputCapture {
+	private static final ThreadLocal<OutputCapture> CURRENT = new ThreadLocal<>();
+	
+	// Consecutive output to the same stream, in the order it was printed
+	private final List<Segment> segments = new ArrayList<>();
+	
+	/**
+	 * Redirect System.out and System.err, until the returned object is closed.
+	 * @return Restores the original streams when closed.
+	 */
+	public static Closeable redirect() {
+		PrintStream out = System.out;
+		PrintStream err = System.err;
+		
+		System.setOut(new PrintStream(new Redirect(out, false), true));
+		System.setErr(new PrintStream(new Redirect(err, true), true));
+		return () -> {
+			System.out.flush();
+			System.err.flush();
+			System.setOut(out);
+			System.setErr(err);
+		};
+	}
+	
+	/**
+	 * Run a task on the current thread, and capture everything it prints.
+	 * @param task - the task to run.
+	 * @return The result of the task.
+	 * @throws Exception If the task failed.
+	 */
+	public <T> T capture(Callable<T> task) throws Exception {
+		OutputCapture previous = CURRENT.get();
+		CURRENT.set(this);
+		
+		try {
+			return task.call();
+		} finally {
+			System.out.flush();
+			System.err.flush();
+			CURRENT.set(previous);
+		}
+	}
+	
+	/**
+	 * Print the captured output to the given streams, and forget it.
+	 * @param out - receives what was printed to System.out.
+	 * @param err - receives what was printed to System.err.
+	 */
+	public void replay(PrintStream out, PrintStream err) {
+		for (Segment segment : segments) {
+			PrintStream target = segment.error() ? err : out;
+			
+			target.write(segment.data().toByteArray(), 0, segment.data().size());
+			target.flush();
+		}
+		segments.clear();
+	}
+	
+	private ByteArrayOutputStream getBuffer(boolean error) {
+		Segment last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+		
+		if (last == null || last.error() != error) {
+			segments.add(last = new Segment(error, new ByteArrayOutputStream()));
+		}
+		return last.data();
+	}
+	
+	private record Segment(boolean error, ByteArrayOutputStream data) { }
+	
+	/**
+	 * Sends output to the capture of the current thread, or to the original stream if there is none.
+	 */
+	private static final class Redirect extends OutputStream {
+		private final PrintStream original;
+		private final boolean error;
+		
+		Redirect(PrintStream original, boolean error) {
+			this.original = original;
+			this.error = error;
+		}
+		
+		@Override
+		public void write(int b) {
+			OutputCapture capture = CURRENT.get();
+			
+			if (capture != null)
+				capture.getBuffer(error).write(b);
+			else
+				original.write(b);
+		}
+		
+		@Override
+		public void write(byte[] b, int off, int len) {
+			OutputCapture capture = CURRENT.get();
+			
+			if (capture != null)
+				capture.getBuffer(error).write(b, off, len);
+			else
+				original.write(b, off, len);
+		}
+		
+		@Override
+		public void flush() {
+			if (CURRENT.get() == null)
+				original.flush();
+		}
+	}
+}
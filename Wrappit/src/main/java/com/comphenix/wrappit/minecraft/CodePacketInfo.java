@@ -23,13 +23,58 @@
 package com.comphenix.wrappit.minecraft;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.comphenix.protocol.PacketType;
 
-public record CodePacketInfo(List <Field> memoryOrder,
-							 List <Field> networkOrder,
-							 PacketType type) {
+/**
+ * The memory and network order of a packet class.
+ * <p>
+ * Fields are described by name and descriptor, so the packet class is not loaded until
+ * {@link #getNetworkField(int)} is called to generate the wrapper.
+ *
+ * @param memoryOrder - every instance field, in the order they are declared.
+ * @param networkOrder - every instance field, in the order they are written to the network.
+ * @param wireTypes - the encoding of every field in the network order, which the generator checks against the wiki.
+ * @param type - the packet type.
+ * @param memoryIndices - the index of every field in the network order, among the fields of the same type in memory.
+ */
+public record CodePacketInfo(List <SchemaField> memoryOrder,
+							 List <SchemaField> networkOrder,
+							 List <WireType> wireTypes,
+							 PacketType type,
+							 List <Integer> memoryIndices) {
+
+	public CodePacketInfo(List <SchemaField> memoryOrder, List <SchemaField> networkOrder, List <WireType> wireTypes, PacketType type) {
+		this(memoryOrder, networkOrder, wireTypes, type, computeMemoryIndices(memoryOrder, networkOrder));
+	}
+
+	/**
+	 * Compute the index every network field has in the structure modifier of its type.
+	 * <p>
+	 * That is the number of fields of the same type that precede it in memory. A field that is
+	 * missing from the memory order is placed after all of them.
+	 */
+	private static List <Integer> computeMemoryIndices(List <SchemaField> memoryOrder, List <SchemaField> networkOrder) {
+		Map <String, Integer> typeCounts = new HashMap <>();
+		Map <SchemaField, Integer> indices = new HashMap <>();
+		List <Integer> result = new ArrayList <>(networkOrder.size());
+
+		for (SchemaField field : memoryOrder) {
+			int index = typeCounts.merge(field.descriptor(), 1, Integer::sum) - 1;
+			indices.putIfAbsent(field, index);
+		}
+
+		for (SchemaField field : networkOrder) {
+			Integer index = indices.get(field);
+			result.add(index != null ? index : typeCounts.getOrDefault(field.descriptor(), 0));
+		}
+		return Collections.unmodifiableList(result);
+	}
 
 	/**
 	 * Determine if the memory and network contain the same number of fields.
@@ -42,23 +87,61 @@ public record CodePacketInfo(List <Field> memoryOrder,
 		return memoryOrder.size() == networkOrder.size();
 	}
 
-	public List <Field> getMemoryOrder() {
+	public List <SchemaField> getMemoryOrder() {
 		return memoryOrder;
 	}
 
-	public List <Field> getNetworkOrder() {
+	public List <SchemaField> getNetworkOrder() {
 		return networkOrder;
 	}
 
+	/**
+	 * Retrieve the reflected field of a field in the network order.
+	 * <p>
+	 * This loads the packet class, so it is only used to generate the wrapper.
+	 * @param fieldIndex - the index of the field in the network order.
+	 * @return The reflected field.
+	 * @throws IllegalArgumentException If the field is not declared in the hierarchy of the packet class.
+	 */
+	public Field getNetworkField(int fieldIndex) {
+		SchemaField field = networkOrder.get(fieldIndex);
+		String owner = field.owner().replace('/', '.');
+		Class<?> clazz = type.getPacketClass();
+
+		// Find the declaring class
+		while (clazz != null && !clazz.getName().equals(owner)) {
+			clazz = clazz.getSuperclass();
+		}
+
+		if (clazz == null) {
+			throw new IllegalArgumentException("Cannot find " + owner + " in the hierarchy of " + type.getPacketClass());
+		}
+		return FieldIndex.getField(clazz, field.name());
+	}
+
+	public List <WireType> getWireTypes() {
+		return wireTypes;
+	}
+
 	public PacketType getType() {
 		return type;
 	}
 
+	/**
+	 * Retrieve the index of a field in the structure modifier of its type.
+	 * @param fieldIndex - the index of the field in the network order.
+	 * @return The memory index.
+	 */
+	public int getMemoryIndex(int fieldIndex) {
+		return memoryIndices.get(fieldIndex);
+	}
+
 	@Override
 	public String toString() {
 		return "CodePacketInfo{" +
 				"memoryOrder=" + memoryOrder +
 				", networkOrder=" + networkOrder +
+				", wireTypes=" + wireTypes +
 				", type=" + type +
 				'}';
 	}
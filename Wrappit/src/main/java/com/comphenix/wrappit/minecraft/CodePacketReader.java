@@ -23,45 +23,214 @@
 package com.comphenix.wrappit.minecraft;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import net.minecraft.server.v1_16_R3.PacketPlayInFlying;
 import net.minecraft.server.v1_16_R3.PacketPlayOutBoss;
 import net.minecraft.server.v1_16_R3.PacketPlayOutTabComplete;
 import org.objectweb.asm.ClassReader;
-import org.objectweb.asm.ClassVisitor;
-import org.objectweb.asm.MethodVisitor;
-import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.analysis.AnalyzerException;
 
 import com.comphenix.protocol.PacketType;
-import com.comphenix.protocol.utility.Constants;
+import com.comphenix.protocol.utility.MinecraftReflection;
+import com.comphenix.wrappit.minecraft.NetworkOrderAnalyzer.WriteStep;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
 
 public class CodePacketReader {
-	// Write packet method signature
-	// private static final String WRITE_PACKET_SIGNATURE = "(Lnet/minecraft/server/" + Constants.PACKAGE_VERSION + "/PacketDataSerializer;)V";
-	private static final String WRITE_PACKET_SIGNATURE = "(Lnet/minecraft/server/v1_16_R3/PacketDataSerializer;)V";
-	private static final String WRITE_PACKET_NAME = "b";
-	
+	private static final String JAVA_PREFIX = "java/";
+
+	// Schemas read straight from the server jar, if any
+	private final JarSchemaReader schemaReader;
+
+	// Schemas from a previous run, if any
+	private final SchemaCache schemaCache;
+
+	// The network order of every class we have parsed
+	private final Map<Class<?>, NetworkOrder> networkOrders = new ConcurrentHashMap<>();
+
+	/**
+	 * Construct a reader that analyses the packet classes on the class path.
+	 */
+	public CodePacketReader() {
+		this(null, null);
+	}
+
+	/**
+	 * Construct a reader that takes the memory and network order from the given server jar.
+	 * <p>
+	 * Packets are looked up by class name, and neither their classes nor their fields are loaded.
+	 * @param schemaReader - the server jar schemas, or NULL to analyse the class path.
+	 */
+	public CodePacketReader(JarSchemaReader schemaReader) {
+		this(schemaReader, null);
+	}
+
+	/**
+	 * Construct a reader that looks up every packet in a schema cache first.
+	 * <p>
+	 * Packets that are not in the cache are read from the server jar or the class path, and added to it.
+	 * @param schemaReader - the server jar schemas, or NULL to analyse the class path.
+	 * @param schemaCache - the schema cache, or NULL to disable caching.
+	 */
+	public CodePacketReader(JarSchemaReader schemaReader, SchemaCache schemaCache) {
+		this.schemaReader = schemaReader;
+		this.schemaCache = schemaCache;
+	}
+
 	/**
 	 * Read a particular packet from local code.
+	 * <p>
+	 * Packets in the schema cache or the server jar are looked up by class name, so their classes are not loaded.
 	 * @param type - the type of the packet to read.
 	 * @return The resulting packet information.
 	 * @throws IOException If we are unable to parse the network order.
 	 */
 	public CodePacketInfo readPacket(PacketType type) throws IOException {
+		if (schemaCache != null || schemaReader != null) {
+			PacketSchema schema = findSchema(type);
+
+			if (schema != null) {
+				return new CodePacketInfo(schema.memoryOrder(), schema.networkOrder(), schema.wireTypes(), type);
+			}
+			if (schemaReader != null) {
+				throw new IOException("Packet " + type + " cannot be found in the server jar - tried " + getClassNames(type));
+			}
+		}
+
+		Class<?> packetClass = getPacketClass(type);
+		List<Field> memoryOrder = readMemoryOrder(packetClass);
+		NetworkOrder networkOrder = readNetworkOrder(packetClass);
+		PacketSchema schema = toSchema(packetClass, memoryOrder, networkOrder);
+
+		if (schemaCache != null) {
+			schemaCache.put(schema);
+		}
+		return new CodePacketInfo(schema.memoryOrder(), schema.networkOrder(), schema.wireTypes(), type);
+	}
+
+	/**
+	 * Look up the schema of a packet in the schema cache, and then the server jar.
+	 * @return The schema, or NULL if neither has it.
+	 */
+	private PacketSchema findSchema(PacketType type) throws IOException {
+		for (String className : getClassNames(type)) {
+			PacketSchema schema = schemaCache != null ? schemaCache.get(className) : null;
+
+			if (schema == null && schemaReader != null) {
+				schema = schemaReader.getSchema(className);
+
+				if (schema != null && schemaCache != null) {
+					schemaCache.put(schema);
+				}
+			}
+			if (schema != null) {
+				return schema;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Retrieve the binary names ProtocolLib knows the class of a packet by, without loading it.
+	 */
+	private static List<String> getClassNames(PacketType type) {
+		List<String> result = new ArrayList<>();
+
+		for (String name : type.getClassNames()) {
+			// Simple names are relative to the package of the server
+			result.add(name.indexOf('.') >= 0 ? name : MinecraftReflection.getMinecraftPackage() + "." + name);
+		}
+		return result;
+	}
+
+	private static Class<?> getPacketClass(PacketType type) {
 		Class<?> packetClass = type.getPacketClass();
-		
-		if (packetClass != null) {
-			List<Field> memoryOrder = readMemoryOrder(packetClass);
-			List<Field> networkOrder = readNetworkOrder(packetClass);
-			return new CodePacketInfo(memoryOrder, networkOrder, type);
-		} else {
+
+		if (packetClass == null) {
 			throw new IllegalArgumentException("Packet " + type + " is not registered.");
 		}
+		return packetClass;
 	}
-	
+
+	private PacketSchema toSchema(Class<?> packetClass, List<Field> memoryOrder, NetworkOrder networkOrder) {
+		Class<?> superClass = packetClass.getSuperclass();
+
+		return new PacketSchema(Type.getInternalName(packetClass),
+				superClass != null ? Type.getInternalName(superClass) : null,
+				toSchemaFields(memoryOrder), toSchemaFields(networkOrder.fields()), networkOrder.wireTypes());
+	}
+
+	private List<SchemaField> toSchemaFields(List<Field> fields) {
+		List<SchemaField> result = new ArrayList<>(fields.size());
+
+		for (Field field : fields) {
+			result.add(new SchemaField(Type.getInternalName(field.getDeclaringClass()), field.getName(), Type.getDescriptor(field.getType())));
+		}
+		return result;
+	}
+
+	/**
+	 * Compute a hash of the bytecode of a packet class and every superclass.
+	 * <p>
+	 * Both the memory and the network order are derived from this bytecode, so the hash changes
+	 * whenever the result of {@link #readPacket(PacketType)} might change. Computing it is much
+	 * cheaper than reading the packet. With a server jar, the bytecode is read from the jar and
+	 * the packet class is not loaded.
+	 * @param type - the type of the packet.
+	 * @return The hash, as a hexadecimal string.
+	 * @throws IOException If the bytecode cannot be read.
+	 */
+	public String computeClassHash(PacketType type) throws IOException {
+		Hasher hasher = Hashing.sha256().newHasher();
+		String className = schemaReader != null ? findJarClass(type) : Type.getInternalName(getPacketClass(type));
+
+		// The standard library does not change with the server
+		while (className != null && !className.startsWith(JAVA_PREFIX)) {
+			String resource = className + ".class";
+			byte[] bytecode = readBytecode(className);
+
+			if (bytecode == null) {
+				throw new IOException("Cannot find bytecode of " + className);
+			}
+			hasher.putString(resource, StandardCharsets.UTF_8);
+			hasher.putBytes(bytecode);
+			className = new ClassReader(bytecode).getSuperName();
+		}
+		return hasher.hash().toString();
+	}
+
+	private String findJarClass(PacketType type) throws IOException {
+		for (String className : getClassNames(type)) {
+			if (schemaReader.isPacket(className)) {
+				return className.replace('.', '/');
+			}
+		}
+		throw new IOException("Packet " + type + " cannot be found in the server jar - tried " + getClassNames(type));
+	}
+
+	/**
+	 * Read the bytecode of a class from the server jar, or the class path if there is none.
+	 * @param className - the internal name of the class.
+	 * @return The bytecode, or NULL if it cannot be found.
+	 */
+	private byte[] readBytecode(String className) throws IOException {
+		if (schemaReader != null) {
+			return schemaReader.getBytecode(className);
+		}
+		try (InputStream input = ClassLoader.getSystemResourceAsStream(className + ".class")) {
+			return input != null ? ByteStreams.toByteArray(input) : null;
+		}
+	}
+
 	private List<Field> readMemoryOrder(Class<?> packetClass) {
 		final List<Field> result = new ArrayList<>();
 		final Set<Field> candidates = setUnion(packetClass.getDeclaredFields(), packetClass.getFields());
@@ -77,48 +246,55 @@ public class CodePacketReader {
 		return result;
 	}
 
-	private List<Field> readNetworkOrder(final Class<?> packetClass) throws IOException {
-		System.out.println("loading " + packetClass.getCanonicalName());
+	/**
+	 * Read the order in which the fields of a class are written to the network.
+	 * <p>
+	 * The result is cached, so super classes shared by many packets are only parsed once.
+	 * @param packetClass - the class to read.
+	 * @return The written fields and their wire types, as immutable lists.
+	 * @throws IOException If the bytecode cannot be read.
+	 */
+	private NetworkOrder readNetworkOrder(final Class<?> packetClass) throws IOException {
+		NetworkOrder cached = networkOrders.get(packetClass);
 
-		final ClassReader reader = new ClassReader(packetClass.getCanonicalName());
-		final List<Field> result = new ArrayList<>();
+		if (cached != null)
+			return cached;
 
-		reader.accept(new ClassVisitor(Opcodes.ASM5) {
-			@Override
-			public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
-				final String writePacketName = name;
-				
-				// Is this our write packet method?
-				if (desc.equals(WRITE_PACKET_SIGNATURE) && writePacketName.equals(WRITE_PACKET_NAME)) {
-					return new FieldEnumerator(packetClass, result) {
-						@Override
-						public void visitMethodInsn(int opcode, String owner, String name, String desc) {
-							// Super method call?
-							if (opcode == Opcodes.INVOKESPECIAL) {
-								if (name.equals(writePacketName) && desc.equals(WRITE_PACKET_SIGNATURE)) {
-									// Add the fields written there too
-									try {
-										List<Field> superMethod = readNetworkOrder(packetClass.getSuperclass());
-										output.addAll(superMethod);
-									} catch (IOException e) {
-										throw new RuntimeException("Inner I/O error", e);
-									}
-								}
-							}
-						}
-						
-						@Override
-						protected boolean processField(Field field) {
-							return isValidField(field);
-						}
-					};
+		System.out.println("loading " + packetClass.getName());
+
+		// Use the binary name, the canonical name cannot be resolved for nested classes
+		final ClassReader reader = new ClassReader(packetClass.getName());
+		final ClassNode classNode = new ClassNode();
+		final List<Field> fields = new ArrayList<>();
+		final List<WireType> wireTypes = new ArrayList<>();
+
+		// The analysis needs neither line numbers nor frames
+		reader.accept(classNode, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+
+		try {
+			for (WriteStep step : new NetworkOrderAnalyzer(classNode).analyze()) {
+				if (step.isSuperCall()) {
+					// Add the fields written there too
+					NetworkOrder superOrder = readNetworkOrder(packetClass.getSuperclass());
+					fields.addAll(superOrder.fields());
+					wireTypes.addAll(superOrder.wireTypes());
 				} else {
-					return null;
+					Field field = FieldIndex.getField(packetClass, step.fieldName());
+
+					if (isValidField(field)) {
+						fields.add(field);
+						wireTypes.add(step.wireType());
+					}
 				}
 			}
-		}, ClassReader.EXPAND_FRAMES);
-		
-		return result;
+		} catch (AnalyzerException e) {
+			throw new IOException("Cannot analyze the write method of " + packetClass.getName(), e);
+		}
+
+		// Recursion means we cannot compute this atomically - but the result is always the same
+		NetworkOrder shared = new NetworkOrder(List.copyOf(fields), List.copyOf(wireTypes));
+		cached = networkOrders.putIfAbsent(packetClass, shared);
+		return cached != null ? cached : shared;
 	}
 	
 	/**
@@ -147,4 +323,6 @@ public class CodePacketReader {
 		
 		return result;
 	}
-}
+
+	private record NetworkOrder(List<Field> fields, List<WireType> wireTypes) { }
+}
\ No newline at end of file
@@ -0,0 +1,71 @@
+/*
+  Copyright (C) dmulloy2 <http://dmulloy2.net>
+  Copyright (C) Kristian S. Strangeland
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in
+  all copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+  THE SOFTWARE.
+ */
+package com.comphenix.wrappit.minecraft;
+
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Lookup table of every instance and static field visible in a class, including inherited fields.
+ * <p>
+ * The table of each class is built once, the first time it is needed, and is immutable afterwards.
+ * It may be used by multiple threads at once.
+ */
+public final class FieldIndex {
+	private static final ClassValue<Map<String, Field>> INDEX = new ClassValue<>() {
+		@Override
+		protected Map<String, Field> computeValue(Class<?> type) {
+			Map<String, Field> result = new HashMap<>();
+			Class<?> superClass = type.getSuperclass();
+
+			// Fields in a sub class hide the fields in its super classes
+			if (superClass != null) {
+				result.putAll(INDEX.get(superClass));
+			}
+			for (Field field : type.getDeclaredFields()) {
+				result.put(field.getName(), field);
+			}
+			return Map.copyOf(result);
+		}
+	};
+
+	private FieldIndex() {
+		// Not constructable
+	}
+
+	/**
+	 * Retrieve a field by searching through the inheritance chain.
+	 * @param clazz - the class to start looking.
+	 * @param name - name of the field to find.
+	 * @return The resulting field.
+	 * @throws NoSuchFieldError If the field cannot be found.
+	 */
+	public static Field getField(Class<?> clazz, String name) {
+		Field field = INDEX.get(clazz).get(name);
+
+		if (field == null)
+			throw new NoSuchFieldError(name);
+		return field;
+	}
+}
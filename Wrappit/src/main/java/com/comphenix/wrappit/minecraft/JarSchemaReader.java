@@ -0,0 +1,354 @@
+/*
+  Copyright (C) dmulloy2 <http://dmulloy2.net>
+  Copyright (C) Kristian S. Strangeland
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in
+  all copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+  THE SOFTWARE.
+ */
+package com.comphenix.wrappit.minecraft;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldNode;
+import org.objectweb.asm.tree.analysis.AnalyzerException;
+
+import com.comphenix.wrappit.minecraft.NetworkOrderAnalyzer.WriteStep;
+
+/**
+ * Reads the schema of every packet straight from the bytecode in a server jar.
+ * <p>
+ * No class in the jar is ever loaded or initialized, so this does not depend on NMS or ProtocolLib
+ * being bootstrapped. The fields and super class of every packet class are read in parallel when the
+ * reader is created, while the write methods are only analyzed when a schema is first requested. So
+ * opening the jar stays cheap, even when every schema is already in the {@link SchemaCache}.
+ * <p>
+ * A class that cannot be read or analyzed is skipped, and only the schemas that depend on it fail.
+ */
+public class JarSchemaReader implements Closeable {
+	private static final String MINECRAFT_PREFIX = "net/minecraft/";
+	private static final String PACKET_PREFIX = "Packet";
+	private static final String PACKET_INTERFACE = "Packet";
+	private static final String CLASS_SUFFIX = ".class";
+
+	private final JarFile jar;
+
+	// Every class we have parsed, including super classes outside the packet family
+	private final Map<String, ClassData> classes = new ConcurrentHashMap<>();
+	private final Map<String, List<WriteStep>> writeOrders = new ConcurrentHashMap<>();
+	private final Map<String, NetworkOrder> networkOrders = new ConcurrentHashMap<>();
+	private final Map<String, PacketSchema> schemas = new ConcurrentHashMap<>();
+
+	// Classes that could not be read or analyzed, and why
+	private final Map<String, IOException> failures = new ConcurrentHashMap<>();
+
+	// Internal name of every packet class in the jar
+	private final Set<String> packetNames;
+
+	/**
+	 * Open the given server jar and scan every packet class.
+	 * @param file - the server jar.
+	 * @throws IOException If the jar cannot be read.
+	 */
+	public JarSchemaReader(File file) throws IOException {
+		this.jar = new JarFile(file);
+
+		List<JarEntry> entries = jar.stream()
+				.filter(JarSchemaReader::isPacketEntry)
+				.collect(Collectors.toList());
+
+		entries.parallelStream().forEach(entry -> {
+			String className = getClassName(entry);
+
+			try {
+				classes.put(className, readClass(entry));
+			} catch (IOException e) {
+				failures.put(className, e);
+			}
+		});
+
+		// The name also matches helpers such as the serializer and the listeners
+		packetNames = entries.stream()
+				.map(JarSchemaReader::getClassName)
+				.filter(name -> failures.containsKey(name) || isPacketClass(classes.get(name)))
+				.collect(Collectors.toCollection(LinkedHashSet::new));
+	}
+
+	private static String getClassName(JarEntry entry) {
+		return entry.getName().substring(0, entry.getName().length() - CLASS_SUFFIX.length());
+	}
+
+	/**
+	 * Determine if a class implements the Packet interface, directly or through one of its super classes.
+	 * @param data - the class to check.
+	 * @return TRUE if it is a packet, FALSE otherwise.
+	 */
+	private boolean isPacketClass(ClassData data) {
+		if (data == null || (data.access() & Opcodes.ACC_INTERFACE) != 0)
+			return false;
+
+		for (ClassData current = data; current != null; current = classes.get(current.superName())) {
+			for (String name : current.interfaces()) {
+				if (name.substring(name.lastIndexOf('/') + 1).equals(PACKET_INTERFACE)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static boolean isPacketEntry(JarEntry entry) {
+		String name = entry.getName();
+
+		return name.startsWith(MINECRAFT_PREFIX) && name.endsWith(CLASS_SUFFIX) &&
+			   name.substring(name.lastIndexOf('/') + 1).startsWith(PACKET_PREFIX);
+	}
+
+	/**
+	 * Determine if a class is a packet in this jar.
+	 * @param className - the binary or internal name of the class.
+	 * @return TRUE if it is, FALSE otherwise.
+	 */
+	public boolean isPacket(String className) {
+		return packetNames.contains(className.replace('.', '/'));
+	}
+
+	/**
+	 * Read the bytecode of a class in the jar.
+	 * @param className - the binary or internal name of the class.
+	 * @return The bytecode, or NULL if the class is not in the jar.
+	 * @throws IOException If the class cannot be read.
+	 */
+	public byte[] getBytecode(String className) throws IOException {
+		JarEntry entry = jar.getJarEntry(className.replace('.', '/') + CLASS_SUFFIX);
+
+		if (entry == null)
+			return null;
+
+		try (InputStream input = jar.getInputStream(entry)) {
+			return input.readAllBytes();
+		}
+	}
+
+	/**
+	 * Retrieve the schema of a given packet class.
+	 * @param className - the binary or internal name of the class.
+	 * @return The schema, or NULL if the class is not a packet in this jar.
+	 * @throws IOException If the class, or a class it depends on, cannot be read or analyzed.
+	 */
+	public PacketSchema getSchema(String className) throws IOException {
+		String internalName = className.replace('.', '/');
+		PacketSchema schema = schemas.get(internalName);
+
+		if (schema == null && packetNames.contains(internalName)) {
+			schema = buildSchema(internalName);
+			schemas.putIfAbsent(internalName, schema);
+		}
+		return schema;
+	}
+
+	@Override
+	public void close() throws IOException {
+		jar.close();
+	}
+
+	private PacketSchema buildSchema(String className) throws IOException {
+		ClassData data = getClassData(className);
+		List<SchemaField> memoryOrder = new ArrayList<>();
+
+		// Same as the declared fields and the public fields in reflection
+		for (FieldData field : data.fields()) {
+			if (isValidField(className, field)) {
+				memoryOrder.add(new SchemaField(className, field.name(), field.descriptor()));
+			}
+		}
+		for (ClassData parent = getClassData(data.superName()); parent != null; parent = getClassData(parent.superName())) {
+			for (FieldData field : parent.fields()) {
+				if ((field.access() & Opcodes.ACC_PUBLIC) != 0 && isValidField(parent.name(), field)) {
+					memoryOrder.add(new SchemaField(parent.name(), field.name(), field.descriptor()));
+				}
+			}
+		}
+		NetworkOrder networkOrder = readNetworkOrder(className);
+		return new PacketSchema(className, data.superName(), memoryOrder, networkOrder.fields(), networkOrder.wireTypes());
+	}
+
+	private NetworkOrder readNetworkOrder(String className) throws IOException {
+		NetworkOrder cached = networkOrders.get(className);
+
+		if (cached != null)
+			return cached;
+
+		ClassData data = getClassData(className);
+		List<SchemaField> fields = new ArrayList<>();
+		List<WireType> wireTypes = new ArrayList<>();
+
+		if (data != null) {
+			for (WriteStep step : getWriteOrder(data)) {
+				if (step.isSuperCall()) {
+					// Add the fields written there too
+					NetworkOrder superOrder = readNetworkOrder(data.superName());
+					fields.addAll(superOrder.fields());
+					wireTypes.addAll(superOrder.wireTypes());
+				} else {
+					SchemaField field = findField(data, step.fieldName());
+
+					if (field != null) {
+						fields.add(field);
+						wireTypes.add(step.wireType());
+					}
+				}
+			}
+		}
+
+		NetworkOrder result = new NetworkOrder(List.copyOf(fields), List.copyOf(wireTypes));
+		networkOrders.put(className, result);
+		return result;
+	}
+
+	/**
+	 * Retrieve a field by searching through the inheritance chain.
+	 * @param data - the class to start looking.
+	 * @param name - name of the field to find.
+	 * @return The field, or NULL if it should be skipped.
+	 * @throws IOException If the field cannot be found.
+	 */
+	private SchemaField findField(ClassData data, String name) throws IOException {
+		String className = data.name();
+
+		for (; data != null; data = getClassData(data.superName())) {
+			for (FieldData field : data.fields()) {
+				if (field.name().equals(name)) {
+					return isValidField(data.name(), field) ? new SchemaField(data.name(), field.name(), field.descriptor()) : null;
+				}
+			}
+		}
+		throw new IOException("Cannot find field " + name + " written by " + className);
+	}
+
+	/**
+	 * Determine if a field should be included in the schema.
+	 * @param owner - the class that declares the field.
+	 * @param field - the field to check.
+	 * @return TRUE if it should, FALSE otherwise.
+	 */
+	private boolean isValidField(String owner, FieldData field) {
+		return (field.access() & Opcodes.ACC_STATIC) == 0 &&
+				// And skip fields in the Packet super class
+			   !owner.substring(owner.lastIndexOf('/') + 1).equals(PACKET_PREFIX);
+	}
+
+	/**
+	 * Retrieve a parsed class, reading it from the jar if it is not a packet class.
+	 * @param className - internal name of the class.
+	 * @return The parsed class, or NULL if it is not in the jar.
+	 * @throws IOException If the class cannot be read or analyzed.
+	 */
+	private ClassData getClassData(String className) throws IOException {
+		if (className == null)
+			return null;
+
+		ClassData data = classes.get(className);
+		IOException failure = failures.get(className);
+
+		if (failure != null) {
+			throw new IOException("Cannot read " + className, failure);
+		}
+		if (data == null) {
+			JarEntry entry = jar.getJarEntry(className + CLASS_SUFFIX);
+
+			if (entry == null)
+				return null;
+
+			try {
+				data = readClass(entry);
+			} catch (IOException e) {
+				failures.putIfAbsent(className, e);
+				throw e;
+			}
+			classes.putIfAbsent(className, data);
+		}
+		return data;
+	}
+
+	private ClassData readClass(JarEntry entry) throws IOException {
+		try (InputStream input = jar.getInputStream(entry)) {
+			ClassNode node = new ClassNode();
+
+			// The write method is analyzed later
+			new ClassReader(input).accept(node, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+
+			List<FieldData> fields = new ArrayList<>(node.fields.size());
+			for (FieldNode field : node.fields) {
+				fields.add(new FieldData(field.name, field.desc, field.access));
+			}
+			return new ClassData(node.name, node.superName, node.access, List.copyOf(node.interfaces), List.copyOf(fields));
+		} catch (IOException e) {
+			throw new IOException("Cannot read " + entry.getName(), e);
+		} catch (RuntimeException e) {
+			// Bytecode that ASM cannot parse
+			throw new IOException("Cannot parse " + entry.getName(), e);
+		}
+	}
+
+	/**
+	 * Retrieve every field the write method of a class writes, analyzing it if we have not done so already.
+	 * @param data - the class.
+	 * @return The write order.
+	 * @throws IOException If the write method cannot be analyzed.
+	 */
+	private List<WriteStep> getWriteOrder(ClassData data) throws IOException {
+		List<WriteStep> writeOrder = writeOrders.get(data.name());
+
+		if (writeOrder != null)
+			return writeOrder;
+
+		// Interfaces cannot be packets
+		if ((data.access() & Opcodes.ACC_INTERFACE) != 0) {
+			writeOrder = Collections.emptyList();
+		} else {
+			ClassNode node = new ClassNode();
+
+			try {
+				// The analysis needs neither line numbers nor frames
+				new ClassReader(getBytecode(data.name())).accept(node, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+				writeOrder = List.copyOf(new NetworkOrderAnalyzer(node).analyze());
+			} catch (AnalyzerException | RuntimeException e) {
+				throw new IOException("Cannot analyze " + data.name(), e);
+			}
+		}
+		writeOrders.putIfAbsent(data.name(), writeOrder);
+		return writeOrder;
+	}
+
+	private record FieldData(String name, String descriptor, int access) { }
+
+	private record ClassData(String name, String superName, int access, List<String> interfaces, List<FieldData> fields) { }
+
+	private record NetworkOrder(List<SchemaField> fields, List<WireType> wireTypes) { }
+}
@@ -0,0 +1,256 @@
+/*
+  Copyright (C) dmulloy2 <http://dmulloy2.net>
+  Copyright (C) Kristian S. Strangeland
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in
+  all copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+  THE SOFTWARE.
+ */
+package com.comphenix.wrappit.minecraft;
+
+import java.util.*;
+
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.*;
+import org.objectweb.asm.tree.analysis.Analyzer;
+import org.objectweb.asm.tree.analysis.AnalyzerException;
+import org.objectweb.asm.tree.analysis.Frame;
+import org.objectweb.asm.tree.analysis.SourceInterpreter;
+import org.objectweb.asm.tree.analysis.SourceValue;
+
+/**
+ * Determine the network order of a packet by following the data flow of its write method.
+ * <p>
+ * A field is written when its value, or anything computed from it, is passed to a call that takes
+ * the packet serializer. The first such call determines the {@link WireType} of the field, unless the
+ * value is only the length of the field - then the field is placed by its length prefix, but the type
+ * is taken from the writes of its elements. As this does not rely on line numbers, classes may be
+ * read with {@link org.objectweb.asm.ClassReader#SKIP_DEBUG}.
+ */
+public class NetworkOrderAnalyzer {
+	private static final String WRITE_PACKET_NAME = "b";
+	private static final String SERIALIZER_NAME = "PacketDataSerializer";
+
+	private final ClassNode classNode;
+	private final String serializerName;
+	private final String writePacketDesc;
+
+	/**
+	 * Construct an analyzer for the given class.
+	 * @param classNode - the class, which must include the code of its methods.
+	 */
+	public NetworkOrderAnalyzer(ClassNode classNode) {
+		this.classNode = classNode;
+
+		// The serializer is always in the same package as the packets
+		this.serializerName = classNode.name.substring(0, classNode.name.lastIndexOf('/') + 1) + SERIALIZER_NAME;
+		this.writePacketDesc = "(L" + serializerName + ";)V";
+	}
+
+	/**
+	 * Analyse the write method of the class.
+	 * @return Every field in the order it is written, including calls to the write method of the super class.
+	 * @throws AnalyzerException If the bytecode of the write method is invalid.
+	 */
+	public List<WriteStep> analyze() throws AnalyzerException {
+		for (MethodNode method : classNode.methods) {
+			if (method.name.equals(WRITE_PACKET_NAME) && method.desc.equals(writePacketDesc) &&
+					(method.access & Opcodes.ACC_STATIC) == 0) {
+				return analyze(method);
+			}
+		}
+		return Collections.emptyList();
+	}
+
+	private List<WriteStep> analyze(MethodNode method) throws AnalyzerException {
+		Frame<SourceValue>[] frames = new Analyzer<>(new SourceInterpreter()).analyze(classNode.name, method);
+		InsnList instructions = method.instructions;
+
+		List<WriteStep> result = new ArrayList<>();
+		Map<String, Integer> written = new HashMap<>();
+		Set<String> typed = new HashSet<>();
+
+		for (int i = 0; i < instructions.size(); i++) {
+			// Skip unreachable code
+			if (!(instructions.get(i) instanceof MethodInsnNode call) || frames[i] == null) {
+				continue;
+			}
+
+			if (call.getOpcode() == Opcodes.INVOKESPECIAL && call.name.equals(WRITE_PACKET_NAME) && call.desc.equals(writePacketDesc)) {
+				result.add(WriteStep.SUPER_CALL);
+				continue;
+			}
+
+			WireType wireType;
+
+			if (call.owner.equals(serializerName)) {
+				wireType = WireType.fromSerializerCall(call.name, call.desc);
+			} else if (call.desc.contains("L" + serializerName + ";")) {
+				// The field serializes itself, or is written by a helper
+				wireType = WireType.CUSTOM;
+			} else {
+				continue;
+			}
+
+			Map<String, Boolean> fields = new LinkedHashMap<>();
+			Set<AbstractInsnNode> visited = new HashSet<>();
+
+			for (SourceValue operand : getOperands(frames[i], call)) {
+				collectFields(operand, frames, instructions, visited, false, fields);
+			}
+			for (Map.Entry<String, Boolean> entry : fields.entrySet()) {
+				String field = entry.getKey();
+				boolean lengthOnly = entry.getValue();
+				Integer position = written.get(field);
+
+				// The length prefix decides where the field is, but not how it is encoded
+				if (position == null) {
+					written.put(field, result.size());
+					result.add(new WriteStep(field, wireType));
+				} else if (!lengthOnly && !typed.contains(field)) {
+					// Elements after a VarInt length are encoded just like the array methods of the serializer
+					WireType prefix = result.get(position).wireType();
+					result.set(position, new WriteStep(field, prefix == WireType.VARINT ? wireType.toArray() : wireType));
+				}
+				if (!lengthOnly) {
+					typed.add(field);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Find every field of this class a value is computed from.
+	 * <p>
+	 * Each field is mapped to TRUE if the value only depends on its length, such as the size prefix of an array or collection.
+	 */
+	private void collectFields(SourceValue value, Frame<SourceValue>[] frames, InsnList instructions,
+							   Set<AbstractInsnNode> visited, boolean length, Map<String, Boolean> output) {
+		for (AbstractInsnNode source : value.insns) {
+			if (!visited.add(source))
+				continue;
+
+			Frame<SourceValue> frame = frames[instructions.indexOf(source)];
+
+			if (frame == null)
+				continue;
+
+			if (source instanceof FieldInsnNode field && field.getOpcode() == Opcodes.GETFIELD &&
+					field.owner.equals(classNode.name) && isThis(frame.getStack(frame.getStackSize() - 1))) {
+				output.merge(field.name, length, Boolean::logicalAnd);
+			} else if (source instanceof VarInsnNode load && load.getOpcode() >= Opcodes.ILOAD && load.getOpcode() <= Opcodes.ALOAD) {
+				collectFields(frame.getLocal(load.var), frames, instructions, visited, length, output);
+			} else {
+				boolean isLength = length || isLength(source);
+
+				for (SourceValue operand : getOperands(frame, source)) {
+					collectFields(operand, frames, instructions, visited, isLength, output);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Determine if an instruction retrieves the length of an array or the size of a collection.
+	 */
+	private boolean isLength(AbstractInsnNode instruction) {
+		if (instruction.getOpcode() == Opcodes.ARRAYLENGTH)
+			return true;
+		return instruction instanceof MethodInsnNode call && call.name.equals("size") && call.desc.equals("()I");
+	}
+
+	/**
+	 * Determine if a value is the "this" reference of the method.
+	 */
+	private boolean isThis(SourceValue value) {
+		if (value.insns.isEmpty())
+			return false;
+
+		for (AbstractInsnNode source : value.insns) {
+			if (!(source instanceof VarInsnNode load) || load.getOpcode() != Opcodes.ALOAD || load.var != 0)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Retrieve the values an instruction consumes from the stack.
+	 */
+	private List<SourceValue> getOperands(Frame<SourceValue> frame, AbstractInsnNode instruction) {
+		int count = getOperandCount(instruction);
+		int top = frame.getStackSize();
+		List<SourceValue> result = new ArrayList<>(count);
+
+		for (int i = Math.max(0, top - count); i < top; i++) {
+			result.add(frame.getStack(i));
+		}
+		return result;
+	}
+
+	private int getOperandCount(AbstractInsnNode instruction) {
+		int opcode = instruction.getOpcode();
+
+		if (instruction instanceof MethodInsnNode call) {
+			return Type.getArgumentTypes(call.desc).length + (opcode == Opcodes.INVOKESTATIC ? 0 : 1);
+		} else if (instruction instanceof InvokeDynamicInsnNode call) {
+			return Type.getArgumentTypes(call.desc).length;
+		} else if (instruction instanceof MultiANewArrayInsnNode array) {
+			return array.dims;
+		} else if (instruction instanceof VarInsnNode) {
+			// Stores consume their value, loads are handled separately
+			return opcode >= Opcodes.ISTORE && opcode <= Opcodes.ASTORE ? 1 : 0;
+		}
+
+		return switch (opcode) {
+			case Opcodes.GETFIELD, Opcodes.PUTSTATIC, Opcodes.CHECKCAST, Opcodes.INSTANCEOF, Opcodes.ANEWARRAY,
+					Opcodes.NEWARRAY, Opcodes.ARRAYLENGTH, Opcodes.DUP, Opcodes.DUP_X1, Opcodes.DUP_X2, Opcodes.DUP2,
+					Opcodes.DUP2_X1, Opcodes.DUP2_X2 -> 1;
+			case Opcodes.PUTFIELD -> 2;
+			default -> {
+				if (opcode >= Opcodes.IALOAD && opcode <= Opcodes.SALOAD)
+					yield 2;
+				// Arithmetic, shifts, bitwise operations and comparisons
+				if (opcode >= Opcodes.IADD && opcode <= Opcodes.DREM || opcode >= Opcodes.ISHL && opcode <= Opcodes.LXOR ||
+						opcode >= Opcodes.LCMP && opcode <= Opcodes.DCMPG)
+					yield 2;
+				// Negation and conversions
+				if (opcode >= Opcodes.INEG && opcode <= Opcodes.DNEG || opcode >= Opcodes.I2L && opcode <= Opcodes.I2S)
+					yield 1;
+				yield 0;
+			}
+		};
+	}
+
+	/**
+	 * A single step in the write method.
+	 *
+	 * @param fieldName - the name of the written field, declared in this class or a super class.
+	 * @param wireType - the encoding of the field.
+	 */
+	public record WriteStep(String fieldName, WireType wireType) {
+		/**
+		 * A call to the write method of the super class.
+		 */
+		public static final WriteStep SUPER_CALL = new WriteStep(null, null);
+
+		public boolean isSuperCall() {
+			return this == SUPER_CALL;
+		}
+	}
+}
@@ -0,0 +1,43 @@
+/*
+  Copyright (C) dmulloy2 <http://dmulloy2.net>
+  Copyright (C) Kristian S. Strangeland
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in
+  all copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+  THE SOFTWARE.
+ */
+package com.comphenix.wrappit.minecraft;
+
+import java.util.List;
+
+/**
+ * The memory and network order of a packet class, read directly from its bytecode.
+ * <p>
+ * Unlike {@link CodePacketInfo}, this does not refer to any loaded class.
+ *
+ * @param className - the internal name of the packet class.
+ * @param superName - the internal name of the super class.
+ * @param memoryOrder - every instance field, in the order they are declared.
+ * @param networkOrder - every instance field, in the order they are written to the network.
+ * @param wireTypes - the encoding of every field in the network order.
+ */
+public record PacketSchema(String className,
+						   String superName,
+						   List<SchemaField> memoryOrder,
+						   List<SchemaField> networkOrder,
+						   List<WireType> wireTypes) {
+}
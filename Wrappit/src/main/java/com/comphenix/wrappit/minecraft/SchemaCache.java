@@ -0,0 +1,287 @@
+/*
+  Copyright (C) dmulloy2 <http://dmulloy2.net>
+  Copyright (C) Kristian S. Strangeland
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in
+  all copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+  THE SOFTWARE.
+ */
+package com.comphenix.wrappit.minecraft;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.common.base.Strings;
+import com.google.common.hash.Hashing;
+
+/**
+ * A compact on-disk cache of packet schemas, keyed by the hash of the server jar and the class name.
+ * <p>
+ * The cache file is read into memory in one go, and each schema is only decoded when it is requested.
+ * Schemas that are added during a run are written back by {@link #save()}, which replaces the file.
+ * <p>
+ * The file is deliberately not memory-mapped: Windows refuses to replace a file while a mapping of it
+ * is open, and the mapping is only released once the buffer is garbage collected. The cache is at most a
+ * few hundred kilobytes, so reading it as a whole costs little more than mapping it, and the decoding of
+ * schemas is lazy either way.
+ * <p>
+ * The file consists of a header (magic, format version and jar hash), a table with every distinct
+ * string and finally the schemas, where every string is stored as an index into the table. Fields
+ * in the network order also store the name of their {@link WireType}.
+ */
+public class SchemaCache {
+	private static final int MAGIC = 0x57525343; // WRSC
+	private static final int FORMAT_VERSION = 3;
+
+	private final File file;
+	private final byte[] jarHash;
+
+	// Schemas in the cache file
+	private final ByteBuffer buffer;
+	private final String[] strings;
+	private final Map<String, Integer> offsets;
+
+	// Schemas added during this run
+	private final Map<String, PacketSchema> added = new ConcurrentHashMap<>();
+
+	private SchemaCache(File file, byte[] jarHash, ByteBuffer buffer, String[] strings, Map<String, Integer> offsets) {
+		this.file = file;
+		this.jarHash = jarHash;
+		this.buffer = buffer;
+		this.strings = strings;
+		this.offsets = offsets;
+	}
+
+	/**
+	 * Open the cache for the given server jar.
+	 * <p>
+	 * If the cache file is missing, or it was written for a different jar, an empty cache is returned.
+	 * @param file - the cache file.
+	 * @param jar - the server jar the schemas are read from.
+	 * @return The cache.
+	 * @throws IOException If the jar cannot be read.
+	 */
+	public static SchemaCache open(File file, File jar) throws IOException {
+		byte[] jarHash = com.google.common.io.Files.asByteSource(jar).hash(Hashing.sha256()).asBytes();
+
+		if (file.isFile()) {
+			try {
+				// Not mapped, as Windows refuses to replace a mapped file in save()
+				ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+
+				if (buffer.remaining() >= 8 + jarHash.length && buffer.getInt() == MAGIC && buffer.getInt() == FORMAT_VERSION) {
+					byte[] storedHash = new byte[jarHash.length];
+					buffer.get(storedHash);
+
+					if (Arrays.equals(storedHash, jarHash)) {
+						return load(file, jarHash, buffer);
+					}
+				}
+			} catch (RuntimeException e) {
+				// A truncated or corrupt cache is simply rebuilt
+				System.err.println("Ignoring invalid schema cache " + file + ": " + e);
+			}
+		}
+		return new SchemaCache(file, jarHash, null, new String[0], Collections.emptyMap());
+	}
+
+	private static SchemaCache load(File file, byte[] jarHash, ByteBuffer buffer) {
+		String[] strings = new String[buffer.getInt()];
+
+		for (int i = 0; i < strings.length; i++) {
+			byte[] data = new byte[buffer.getShort() & 0xFFFF];
+			buffer.get(data);
+			strings[i] = new String(data, StandardCharsets.UTF_8);
+		}
+
+		int count = buffer.getInt();
+		Map<String, Integer> offsets = new HashMap<>(count * 2);
+
+		// Only index the schemas, they are decoded on demand
+		for (int i = 0; i < count; i++) {
+			int offset = buffer.position();
+			String className = strings[buffer.getInt()];
+
+			buffer.getInt(); // super name
+			skipFields(buffer, 3);
+			skipFields(buffer, 4);
+			offsets.put(className, offset);
+		}
+		return new SchemaCache(file, jarHash, buffer, strings, offsets);
+	}
+
+	private static void skipFields(ByteBuffer buffer, int valuesPerField) {
+		int count = buffer.getShort() & 0xFFFF;
+		buffer.position(buffer.position() + count * valuesPerField * Integer.BYTES);
+	}
+
+	/**
+	 * Retrieve the cached schema of a class.
+	 * @param className - the binary or internal name of the class.
+	 * @return The schema, or NULL if it has not been cached.
+	 */
+	public PacketSchema get(String className) {
+		String internalName = className.replace('.', '/');
+		PacketSchema schema = added.get(internalName);
+
+		if (schema == null) {
+			Integer offset = offsets.get(internalName);
+
+			if (offset != null) {
+				schema = decode(buffer.duplicate().position(offset));
+			}
+		}
+		return schema;
+	}
+
+	/**
+	 * Add a schema to the cache. It is not written to disk before {@link #save()} is called.
+	 * @param schema - the schema to add.
+	 */
+	public void put(PacketSchema schema) {
+		if (!offsets.containsKey(schema.className())) {
+			added.put(schema.className(), schema);
+		}
+	}
+
+	/**
+	 * Determine if the cache does not contain any schema.
+	 * @return TRUE if it is empty, FALSE otherwise.
+	 */
+	public boolean isEmpty() {
+		return offsets.isEmpty() && added.isEmpty();
+	}
+
+	/**
+	 * Determine if any schema has been added since the cache was opened.
+	 * @return TRUE if the cache must be saved, FALSE otherwise.
+	 */
+	public boolean isModified() {
+		return !added.isEmpty();
+	}
+
+	/**
+	 * Write every cached schema back to the cache file, if anything has been added.
+	 * @throws IOException If the cache cannot be written.
+	 */
+	public void save() throws IOException {
+		if (!isModified())
+			return;
+
+		Map<String, PacketSchema> schemas = new TreeMap<>(added);
+		for (String className : offsets.keySet()) {
+			schemas.put(className, get(className));
+		}
+
+		// Build the string table
+		Map<String, Integer> table = new LinkedHashMap<>();
+		for (PacketSchema schema : schemas.values()) {
+			intern(table, schema.className());
+			intern(table, schema.superName());
+
+			for (SchemaField field : schema.memoryOrder())
+				internField(table, field);
+			for (SchemaField field : schema.networkOrder())
+				internField(table, field);
+			for (WireType wireType : schema.wireTypes())
+				intern(table, wireType.name());
+		}
+
+		File temporary = new File(file.getPath() + ".tmp");
+
+		try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)))) {
+			output.writeInt(MAGIC);
+			output.writeInt(FORMAT_VERSION);
+			output.write(jarHash);
+
+			output.writeInt(table.size());
+			for (String value : table.keySet()) {
+				byte[] data = value.getBytes(StandardCharsets.UTF_8);
+				output.writeShort(data.length);
+				output.write(data);
+			}
+
+			output.writeInt(schemas.size());
+			for (PacketSchema schema : schemas.values()) {
+				output.writeInt(table.get(schema.className()));
+				output.writeInt(table.get(Strings.nullToEmpty(schema.superName())));
+				writeFields(output, table, schema.memoryOrder(), null);
+				writeFields(output, table, schema.networkOrder(), schema.wireTypes());
+			}
+		}
+		Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	private PacketSchema decode(ByteBuffer input) {
+		String className = strings[input.getInt()];
+		String superName = Strings.emptyToNull(strings[input.getInt()]);
+		List<SchemaField> memoryOrder = decodeFields(input, null);
+		List<WireType> wireTypes = new ArrayList<>();
+		List<SchemaField> networkOrder = decodeFields(input, wireTypes);
+
+		return new PacketSchema(className, superName, memoryOrder, networkOrder, List.copyOf(wireTypes));
+	}
+
+	private List<SchemaField> decodeFields(ByteBuffer input, List<WireType> wireTypes) {
+		SchemaField[] fields = new SchemaField[input.getShort() & 0xFFFF];
+
+		for (int i = 0; i < fields.length; i++) {
+			fields[i] = new SchemaField(strings[input.getInt()], strings[input.getInt()], strings[input.getInt()]);
+
+			if (wireTypes != null) {
+				wireTypes.add(WireType.valueOf(strings[input.getInt()]));
+			}
+		}
+		return List.of(fields);
+	}
+
+	private static void writeFields(DataOutputStream output, Map<String, Integer> table, List<SchemaField> fields,
+									List<WireType> wireTypes) throws IOException {
+		output.writeShort(fields.size());
+
+		for (int i = 0; i < fields.size(); i++) {
+			SchemaField field = fields.get(i);
+
+			output.writeInt(table.get(field.owner()));
+			output.writeInt(table.get(field.name()));
+			output.writeInt(table.get(field.descriptor()));
+
+			if (wireTypes != null) {
+				output.writeInt(table.get(wireTypes.get(i).name()));
+			}
+		}
+	}
+
+	private static void internField(Map<String, Integer> table, SchemaField field) {
+		intern(table, field.owner());
+		intern(table, field.name());
+		intern(table, field.descriptor());
+	}
+
+	private static void intern(Map<String, Integer> table, String value) {
+		table.putIfAbsent(Strings.nullToEmpty(value), table.size());
+	}
+}
@@ -0,0 +1,168 @@
+/*
+  Copyright (C) dmulloy2 <http://dmulloy2.net>
+  Copyright (C) Kristian S. Strangeland
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in
+  all copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+  THE SOFTWARE.
+ */
+package com.comphenix.wrappit.minecraft;
+
+import java.util.Locale;
+
+import org.objectweb.asm.Type;
+
+/**
+ * The encoding a field is written to the network with.
+ */
+public enum WireType {
+	BOOLEAN,
+	BYTE,
+	SHORT,
+	INT,
+	LONG,
+	FLOAT,
+	DOUBLE,
+	VARINT,
+	VARLONG,
+	STRING,
+	UUID,
+	ENUM,
+	COMPONENT,
+	ITEM,
+	NBT,
+	POSITION,
+	KEY,
+	BYTES,
+	BYTE_ARRAY,
+	VARINT_ARRAY,
+	LONG_ARRAY,
+
+	/**
+	 * Written by a method we do not recognize, such as a custom serializer.
+	 */
+	CUSTOM;
+
+	/**
+	 * Retrieve the encoding of an array of this type, prefixed by its length as a VarInt.
+	 * @return The array encoding, or this type if the serializer has no such array.
+	 */
+	public WireType toArray() {
+		return switch (this) {
+			case BYTE -> BYTE_ARRAY;
+			case VARINT -> VARINT_ARRAY;
+			case LONG -> LONG_ARRAY;
+			default -> this;
+		};
+	}
+
+	/**
+	 * Determine the encoding the protocol wiki documents for a field.
+	 * <p>
+	 * Enums, optional values and compound types can be written in more than one way, so they are not recognized.
+	 * @param wikiType - the type on the wiki, such as "VarInt", "String (16)" or "Array of Long".
+	 * @return The encoding, or NULL if the wiki type does not identify one.
+	 */
+	public static WireType fromWikiType(String wikiType) {
+		String type = wikiType.replaceAll("\\(.*?\\)", "").trim().toLowerCase(Locale.ENGLISH);
+		boolean array = false;
+
+		if (type.startsWith("array of ")) {
+			type = type.substring("array of ".length()).trim();
+			array = true;
+		} else if (type.endsWith(" array")) {
+			type = type.substring(0, type.length() - " array".length()).trim();
+			array = true;
+		}
+
+		WireType element = switch (type) {
+			case "boolean" -> BOOLEAN;
+			case "byte", "unsigned byte", "angle" -> BYTE;
+			case "short", "unsigned short" -> SHORT;
+			case "int" -> INT;
+			case "long" -> LONG;
+			case "float" -> FLOAT;
+			case "double" -> DOUBLE;
+			case "varint" -> VARINT;
+			case "varlong" -> VARLONG;
+			case "string" -> STRING;
+			case "uuid" -> UUID;
+			case "chat" -> COMPONENT;
+			case "slot" -> ITEM;
+			case "nbt", "nbt tag" -> NBT;
+			case "position" -> POSITION;
+			case "identifier" -> KEY;
+			default -> null;
+		};
+
+		// Other elements are written one by one, just like a single value
+		return element != null && array ? element.toArray() : element;
+	}
+
+	/**
+	 * Determine the wire type of a method call on the packet serializer.
+	 * <p>
+	 * The methods of the serializer are obfuscated, so every method that is not inherited
+	 * from ByteBuf is recognized by its parameter type instead of its name.
+	 * @param name - the name of the method.
+	 * @param descriptor - the descriptor of the method.
+	 * @return The wire type.
+	 */
+	public static WireType fromSerializerCall(String name, String descriptor) {
+		WireType inherited = switch (name) {
+			case "writeBoolean" -> BOOLEAN;
+			case "writeByte" -> BYTE;
+			case "writeShort" -> SHORT;
+			case "writeInt" -> INT;
+			case "writeLong" -> LONG;
+			case "writeFloat" -> FLOAT;
+			case "writeDouble" -> DOUBLE;
+			case "writeBytes" -> BYTES;
+			default -> null;
+		};
+
+		if (inherited != null)
+			return inherited;
+
+		Type[] arguments = Type.getArgumentTypes(descriptor);
+
+		if (arguments.length == 0)
+			return CUSTOM;
+
+		// Fully qualified names for the standard library, simple names for NMS
+		String argument = arguments[0].getClassName();
+
+		return switch (argument) {
+			case "int" -> VARINT;
+			case "long" -> VARLONG;
+			case "java.lang.String" -> STRING;
+			case "java.util.UUID" -> UUID;
+			case "java.lang.Enum" -> ENUM;
+			case "byte[]" -> BYTE_ARRAY;
+			case "int[]" -> VARINT_ARRAY;
+			case "long[]" -> LONG_ARRAY;
+			default -> switch (argument.substring(argument.lastIndexOf('.') + 1)) {
+				case "IChatBaseComponent" -> COMPONENT;
+				case "ItemStack" -> ITEM;
+				case "NBTTagCompound" -> NBT;
+				case "BlockPosition" -> POSITION;
+				case "MinecraftKey" -> KEY;
+				default -> CUSTOM;
+			};
+		};
+	}
+}
@@ -22,35 +22,83 @@
  */
 package com.comphenix.wrappit.utils;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 public class CaseFormating {
+	// Camel case of every text we have converted, shared by all threads
+	private static final Map<String, String> CAMEL_CASE_CACHE = new ConcurrentHashMap<>();
+	
 	/**
 	 * Convert a given text to camel case with no spaces.
+	 * <p>
+	 * The result is cached, as the same names are converted over and over again.
 	 * @param text - the text to convert.
 	 * @return The resulting camel case.
 	 */
 	public static String toCamelCase(String text) {
-		return toCamelCase(text, "");
+		String result = CAMEL_CASE_CACHE.get(text);
+		
+		if (result == null) {
+			result = toCamelCase(text, "");
+			CAMEL_CASE_CACHE.putIfAbsent(text, result);
+		}
+		return result;
 	}
 	
 	/**
 	 * Convert a given text to camel case.
+	 * <p>
+	 * Words are separated by anything but ASCII letters, digits and underscores. Text that starts with such
+	 * a separator, or is empty, throws StringIndexOutOfBoundsException - unless it is nothing but separators.
 	 * @param text - the text to convert.
 	 * @param delimiter - the delimited used to join each word after the process.
 	 * @return The resulting camel case.
 	 */
 	public static String toCamelCase(String text, String delimiter) {
-		String[] words = text.split("\\W+");
-		StringBuilder output = new StringBuilder();
+		StringBuilder output = new StringBuilder(text.length() + delimiter.length());
+		int length = text.length();
+		int position = 0;
+		
+		// Like String.split, an empty text or a leading separator is an empty word
+		if (length == 0 || (!isWordCharacter(text.charAt(0)) && indexOfWord(text, 0) >= 0)) {
+			appendWord(output, "", 0, 0, delimiter);
+		}
 		
 		// Capitalize all the words
-		for ( String word : words ) {
-			output.append( word.substring( 0, 1 ).toUpperCase() );
-			output.append( word.substring( 1 ).toLowerCase() );
-			output.append( delimiter );
+		while ((position = indexOfWord(text, position)) >= 0) {
+			int end = position + 1;
+			
+			while (end < length && isWordCharacter(text.charAt(end))) {
+				end++;
+			}
+			appendWord(output, text, position, end, delimiter);
+			position = end;
 		}
 		return output.toString();
 	}
 	
+	private static void appendWord(StringBuilder output, String text, int start, int end, String delimiter) {
+		// Throws for an empty word, just like before
+		output.append( text.substring( start, start + 1 ).toUpperCase() );
+		output.append( text.substring( start + 1, end ).toLowerCase() );
+		output.append( delimiter );
+	}
+	
+	private static int indexOfWord(String text, int start) {
+		for (int i = start; i < text.length(); i++) {
+			if (isWordCharacter(text.charAt(i))) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	// Same as the \w character class
+	private static boolean isWordCharacter(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+	}
+	
 	/**
 	 * Convert a part of the string to lower case. The rest is left as is.
 	 * @param text - the string to convert.
@@ -59,15 +107,22 @@ public class CaseFormating {
 	 * @return The converted string.
 	 */
 	public static String toLowerCaseRange(String text, int min, int max) {
-		StringBuilder result = new StringBuilder();
+		int start = Math.max(min, 0);
+		int end = Math.min(max, text.length());
+		char[] result = null;
 		
-		// Convert a range of characters
-		for (int i = 0; i < text.length(); i++) {
-			if (min <= i && i < max)
-				result.append(Character.toLowerCase(text.charAt(i)));
-			else
-				result.append(text.charAt(i));
+		// Only copy the string if a character actually changes
+		for (int i = start; i < end; i++) {
+			char c = text.charAt(i);
+			char lower = Character.toLowerCase(c);
+			
+			if (lower != c) {
+				if (result == null) {
+					result = text.toCharArray();
+				}
+				result[i] = lower;
+			}
 		}
-		return result.toString();
+		return result != null ? new String(result) : text;
 	}
 }
@@ -29,6 +29,10 @@ import java.io.IOException;
  * text by a given amount.
  * <p>
  * Only supports UNIX and Windows style line endings.
+ * <p>
+ * Text is copied to the delegate a line at a time, and the indent of each level is only rendered once.
+ * The builder returned by {@link #incrementIndent()} is reused, so only one of them may be in the middle
+ * of a line at any given time.
  * 
  * @author Kristian
  */
@@ -38,8 +42,10 @@ public class IndentBuilder implements Appendable {
 	private final Appendable delegate;
 	private final int indentLevel;
 	private final String indentText;
+	private final String indentPrefix;
 	
 	private boolean outstandingIndent;
+	private IndentBuilder child;
 	
 	public IndentBuilder(Appendable delegate, int indentLevel) {
 		this(delegate, indentLevel, "    ");
@@ -49,6 +55,7 @@ public class IndentBuilder implements Appendable {
 		this.delegate = delegate;
 		this.indentLevel = indentLevel;
 		this.indentText = indentText;
+		this.indentPrefix = indentText.repeat(Math.max(indentLevel, 0));
 		this.outstandingIndent = true;
 	}
 
@@ -57,7 +64,12 @@ public class IndentBuilder implements Appendable {
 	}
 	
 	public IndentBuilder incrementIndent() {
-		return withIndent(indentLevel + 1);
+		if (child == null) {
+			child = withIndent(indentLevel + 1);
+		}
+		// Just like a new builder
+		child.outstandingIndent = true;
+		return child;
 	}
 	
 	public IndentBuilder appendLine(CharSequence csq) throws IOException {
@@ -73,19 +85,45 @@ public class IndentBuilder implements Appendable {
 
 	@Override
 	public Appendable append(CharSequence csq, int start, int end) throws IOException {
-		for (int i = start; i < end; i++) {
-			append(csq.charAt(i));
-		}
+		int position = start;
 		
+		while (position < end) {
+			if (outstandingIndent) {
+				delegate.append(indentPrefix);
+				outstandingIndent = false;
+			}
+			int lineEnd = indexOfNewline(csq, position, end);
+			
+			if (lineEnd < 0) {
+				delegate.append(csq, position, end);
+				break;
+			}
+			
+			// Copy the rest of the line, and schedule an indent
+			delegate.append(csq, position, lineEnd + 1);
+			outstandingIndent = true;
+			position = lineEnd + 1;
+		}
 		return this;
 	}
+	
+	private static int indexOfNewline(CharSequence csq, int start, int end) {
+		if (csq instanceof String) {
+			int index = ((String) csq).indexOf('\n', start);
+			return index < end ? index : -1;
+		}
+		for (int i = start; i < end; i++) {
+			if (csq.charAt(i) == '\n') {
+				return i;
+			}
+		}
+		return -1;
+	}
 
 	@Override
 	public Appendable append(char c) throws IOException {
 		if (outstandingIndent) {
-			for (int i = 0; i < indentLevel; i++) {
-				delegate.append(indentText);
-			}
+			delegate.append(indentPrefix);
 			outstandingIndent = false;
 		}
 		
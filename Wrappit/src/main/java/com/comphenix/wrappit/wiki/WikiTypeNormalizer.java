@@ -0,0 +1,212 @@
+/*
+  Copyright (C) dmulloy2 <http://dmulloy2.net>
+  Copyright (C) Kristian S. Strangeland
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in
+  all copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+  THE SOFTWARE.
+ */
+package com.comphenix.wrappit.wiki;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Converts the field types on the Minecraft Protocol Wiki to Java types, such as "Array of VarInt" to int[].
+ * <p>
+ * The type is split into words and punctuation, and each sequence of words is replaced by the longest matching
+ * rule. Rules are read from a properties file, where the key is the lower case words and the value is the
+ * replacement - an empty value drops the words. A type that contains the word "array" becomes an array of the
+ * other words, ignoring "of".
+ * <p>
+ * Results are cached per distinct wiki type, and this class is safe to use from multiple threads.
+ */
+public class WikiTypeNormalizer {
+	public static final String DEFAULT_RULES = "/wiki-types.properties";
+	
+	private static final String ARRAY = "array";
+	private static final String ARRAY_OF = "of";
+	
+	// Rules by their first word, longest first
+	private final Map<String, List<Rule>> rules;
+	private final Map<String, String> cache = new ConcurrentHashMap<>();
+	
+	public WikiTypeNormalizer(Properties properties) {
+		Map<String, List<Rule>> rules = new HashMap<>();
+		
+		for (String key : properties.stringPropertyNames()) {
+			List<String> words = tokenize(key);
+			
+			if (!words.isEmpty()) {
+				rules.computeIfAbsent(words.get(0), word -> new ArrayList<>()).add(new Rule(words, properties.getProperty(key).trim()));
+			}
+		}
+		for (List<Rule> candidates : rules.values()) {
+			candidates.sort(Comparator.comparingInt((Rule rule) -> rule.words().size()).reversed());
+		}
+		this.rules = rules;
+	}
+	
+	/**
+	 * Load the rules that ship with Wrappit.
+	 * @return The normalizer.
+	 * @throws IOException If the rules cannot be read.
+	 */
+	public static WikiTypeNormalizer load() throws IOException {
+		return new WikiTypeNormalizer(loadDefaultRules());
+	}
+	
+	/**
+	 * Load the rules that ship with Wrappit, followed by the rules in the given file.
+	 * <p>
+	 * Rules in the file replace the default rules with the same words.
+	 * @param file - the file with additional rules.
+	 * @return The normalizer.
+	 * @throws IOException If the rules cannot be read.
+	 */
+	public static WikiTypeNormalizer load(File file) throws IOException {
+		Properties properties = loadDefaultRules();
+		
+		try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+			properties.load(reader);
+		}
+		return new WikiTypeNormalizer(properties);
+	}
+	
+	/**
+	 * Retrieve the shared normalizer with the rules that ship with Wrappit.
+	 * @return The normalizer.
+	 */
+	public static WikiTypeNormalizer getDefault() {
+		return DefaultHolder.INSTANCE;
+	}
+	
+	private static Properties loadDefaultRules() throws IOException {
+		Properties properties = new Properties();
+		
+		try (InputStream input = WikiTypeNormalizer.class.getResourceAsStream(DEFAULT_RULES)) {
+			if (input == null) {
+				throw new IOException("Cannot find " + DEFAULT_RULES);
+			}
+			properties.load(new InputStreamReader(input, StandardCharsets.UTF_8));
+		}
+		return properties;
+	}
+	
+	/**
+	 * Convert a wiki type to a Java type.
+	 * @param wikiType - the type on the wiki.
+	 * @return The Java type.
+	 */
+	public String normalize(String wikiType) {
+		return cache.computeIfAbsent(wikiType, this::compute);
+	}
+	
+	private String compute(String wikiType) {
+		List<String> words = tokenize(wikiType);
+		StringBuilder result = new StringBuilder();
+		boolean array = false;
+		
+		for (int i = 0; i < words.size(); ) {
+			String word = words.get(i);
+			
+			if (word.equals(ARRAY)) {
+				array = true;
+				i++;
+				continue;
+			}
+			if (word.equals(ARRAY_OF) && (i == 0 || words.get(i - 1).equals(ARRAY))) {
+				i++;
+				continue;
+			}
+			
+			Rule rule = findRule(words, i);
+			
+			if (rule != null) {
+				result.append(rule.replacement());
+				i += rule.words().size();
+			} else {
+				result.append(word);
+				i++;
+			}
+		}
+		return array ? result + "[]" : result.toString();
+	}
+	
+	private Rule findRule(List<String> words, int start) {
+		for (Rule rule : rules.getOrDefault(words.get(start), Collections.emptyList())) {
+			if (start + rule.words().size() <= words.size() &&
+				rule.words().equals(words.subList(start, start + rule.words().size()))) {
+				return rule;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Split a type into lower case words and single punctuation characters, ignoring white space.
+	 */
+	private static List<String> tokenize(String text) {
+		List<String> words = new ArrayList<>();
+		String lower = text.toLowerCase(Locale.ENGLISH);
+		int start = -1;
+		
+		for (int i = 0; i < lower.length(); i++) {
+			char c = lower.charAt(i);
+			
+			if (Character.isLetterOrDigit(c) || c == '_') {
+				if (start < 0) {
+					start = i;
+				}
+				continue;
+			}
+			if (start >= 0) {
+				words.add(lower.substring(start, i));
+				start = -1;
+			}
+			if (!Character.isWhitespace(c)) {
+				words.add(String.valueOf(c));
+			}
+		}
+		if (start >= 0) {
+			words.add(lower.substring(start));
+		}
+		return words;
+	}
+	
+	private static final class DefaultHolder {
+		private static final WikiTypeNormalizer INSTANCE;
+		
+		static {
+			try {
+				INSTANCE = load();
+			} catch (IOException e) {
+				throw new ExceptionInInitializerError(e);
+			}
+		}
+	}
+	
+	private record Rule(List<String> words, String replacement) {
+	}
+}
@@ -0,0 +1,209 @@
+/*
+  Copyright (C) dmulloy2 <http://dmulloy2.net>
+  Copyright (C) Kristian S. Strangeland
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in
+  all copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+  THE SOFTWARE.
+ */
+package com.comphenix.wrappit;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.objectweb.asm.Type;
+
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.utility.Constants;
+import com.comphenix.protocol.utility.MinecraftReflection;
+import com.comphenix.protocol.utility.MinecraftVersion;
+import com.comphenix.wrappit.WrapperGenerator.Feature;
+import com.comphenix.wrappit.minecraft.CodePacketInfo;
+import com.comphenix.wrappit.minecraft.SchemaField;
+import com.comphenix.wrappit.minecraft.WireType;
+import com.comphenix.wrappit.utils.CaseFormating;
+import com.comphenix.wrappit.wiki.WikiPacketField;
+import com.comphenix.wrappit.wiki.WikiPacketInfo;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compiles the Direct class generated for a packet, and verifies that its getter and setter do not allocate.
+ */
+public class DirectAllocationTest {
+	private static final PacketType TYPE = PacketType.Play.Server.ENTITY_VELOCITY;
+	private static final String PACKAGE = "com.comphenix.packetwrapper";
+
+	// Just enough of PacketWrapper to compile a wrapper
+	private static final String ABSTRACT_PACKET =
+			"package " + PACKAGE + ";\n" +
+			"import com.comphenix.protocol.PacketType;\n" +
+			"import com.comphenix.protocol.events.PacketContainer;\n" +
+			"public abstract class AbstractPacket {\n" +
+			"    protected PacketContainer handle;\n" +
+			"    protected AbstractPacket(PacketContainer handle, PacketType type) {\n" +
+			"        this.handle = handle;\n" +
+			"    }\n" +
+			"    public PacketContainer getHandle() {\n" +
+			"        return handle;\n" +
+			"    }\n" +
+			"}\n";
+
+	private static final int WARMUP = 200_000;
+	private static final int ITERATIONS = 1_000_000;
+
+	// Boxing every value would allocate at least 16 bytes per call
+	private static final long MAX_ALLOCATED = 256 * 1024;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@BeforeClass
+	public static void initializePackage() {
+		MinecraftReflection.setMinecraftPackage(Constants.NMS, Constants.OBC);
+		MinecraftVersion.setCurrentVersion(MinecraftVersion.COLOR_UPDATE);
+	}
+
+	@Test
+	public void testDirectAccessorsDoNotAllocate() throws Exception {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+		threads.setThreadAllocatedMemoryEnabled(true);
+
+		Class<?> packetClass = TYPE.getPacketClass();
+		File output = folder.newFolder();
+		compileDriver(packetClass, output);
+
+		try (URLClassLoader loader = new URLClassLoader(new URL[] { output.toURI().toURL() }, getClass().getClassLoader())) {
+			Class<?> driverClass = loader.loadClass(PACKAGE + ".DirectDriver");
+			Object packet = packetClass.getDeclaredConstructor().newInstance();
+
+			measure(threads, (IntUnaryOperator) driverClass.getConstructor(Object.class).newInstance(packet));
+		}
+	}
+
+	/**
+	 * Verify that the driver returns its input, and count the bytes the current thread allocates while calling it.
+	 */
+	private void measure(com.sun.management.ThreadMXBean threads, IntUnaryOperator driver) {
+		for (int i = 0; i < WARMUP; i++) {
+			assertEquals(i + 1000, driver.applyAsInt(i + 1000));
+		}
+
+		long threadId = Thread.currentThread().getId();
+		long before = threads.getThreadAllocatedBytes(threadId);
+		int checksum = 0;
+
+		for (int i = 0; i < ITERATIONS; i++) {
+			checksum += driver.applyAsInt(i + 1000);
+		}
+		long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+		assertTrue("Checksum " + checksum, checksum != 0);
+		assertTrue("Direct accessors allocated " + allocated + " bytes in " + ITERATIONS + " calls", allocated < MAX_ALLOCATED);
+	}
+
+	/**
+	 * Generate and compile the wrapper, along with a driver that writes and reads its first int field through the Direct class.
+	 */
+	private void compileDriver(Class<?> packetClass, File output) throws Exception {
+		List<SchemaField> fields = new ArrayList<>();
+		List<WireType> wireTypes = new ArrayList<>();
+		List<WikiPacketField> wikiFields = new ArrayList<>();
+		String accessor = null;
+
+		for (Field field : packetClass.getDeclaredFields()) {
+			if (!Modifier.isStatic(field.getModifiers())) {
+				String name = "Field " + field.getName();
+
+				fields.add(new SchemaField(Type.getInternalName(packetClass), field.getName(), Type.getDescriptor(field.getType())));
+				wireTypes.add(WireType.CUSTOM);
+				wikiFields.add(new WikiPacketField(name, field.getType().getSimpleName(), ""));
+
+				if (accessor == null && field.getType().equals(int.class)) {
+					accessor = CaseFormating.toCamelCase(name);
+				}
+			}
+		}
+		assertNotNull("No int field in " + packetClass, accessor);
+
+		WrapperGenerator generator = new WrapperGenerator(null, null, EnumSet.of(Feature.PRIMITIVE_ACCESSORS));
+		String wrapper = generator.generateClass(new CodePacketInfo(fields, fields, wireTypes, TYPE), new WikiPacketInfo(TYPE, wikiFields));
+		String className = Wrappit.getClassName(TYPE);
+
+		String driver =
+				"package " + PACKAGE + ";\n" +
+				"public class DirectDriver implements java.util.function.IntUnaryOperator {\n" +
+				"    private final Object handle;\n" +
+				"    public DirectDriver(Object handle) {\n" +
+				"        this.handle = handle;\n" +
+				"    }\n" +
+				"    @Override\n" +
+				"    public int applyAsInt(int value) {\n" +
+				"        " + className + ".Direct.set" + accessor + "(handle, value);\n" +
+				"        return " + className + ".Direct.get" + accessor + "(handle);\n" +
+				"    }\n" +
+				"}\n";
+
+		compile(output, new Source("AbstractPacket", ABSTRACT_PACKET), new Source(className, wrapper), new Source("DirectDriver", driver));
+	}
+
+	private void compile(File output, JavaFileObject... sources) throws IOException {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		Assume.assumeNotNull(compiler);
+
+		List<String> options = Arrays.asList("-d", output.getPath(), "-classpath", System.getProperty("java.class.path"));
+		boolean success = compiler.getTask(null, null, null, options, null, Arrays.asList(sources)).call();
+
+		assertTrue("Unable to compile the generated wrapper", success);
+	}
+
+	private static class Source extends SimpleJavaFileObject {
+		private final String code;
+
+		Source(String className, String code) {
+			super(URI.create("string:///" + PACKAGE.replace('.', '/') + "/" + className + Kind.SOURCE.extension), Kind.SOURCE);
+			this.code = code;
+		}
+
+		@Override
+		public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+			return code;
+		}
+	}
+}
@@ -0,0 +1,148 @@
+/*
+  Copyright (C) dmulloy2 <http://dmulloy2.net>
+  Copyright (C) Kristian S. Strangeland
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in
+  all copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+  THE SOFTWARE.
+ */
+package com.comphenix.wrappit.minecraft;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Opcodes;
+
+import static com.comphenix.wrappit.minecraft.PacketFixtures.PREFIX;
+import static org.junit.Assert.*;
+
+public class JarSchemaReaderTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testSchemaIncludesSuperClass() throws IOException {
+		try (JarSchemaReader reader = open(compile())) {
+			PacketSchema schema = reader.getSchema(PREFIX + "PacketPlayOutChild");
+
+			assertEquals(Arrays.asList(new SchemaField(PREFIX + "PacketPlayOutChild", "time", "J")), schema.memoryOrder());
+			assertEquals(Arrays.asList(new SchemaField(PREFIX + "PacketPlayOutBase", "id", "I"),
+					new SchemaField(PREFIX + "PacketPlayOutChild", "time", "J")), schema.networkOrder());
+			assertEquals(Arrays.asList(WireType.VARINT, WireType.LONG), schema.wireTypes());
+		}
+	}
+
+	@Test
+	public void testBinaryName() throws IOException {
+		try (JarSchemaReader reader = open(compile())) {
+			assertEquals(reader.getSchema(PREFIX + "PacketPlayOutBase"), reader.getSchema(PacketFixtures.PACKAGE + ".PacketPlayOutBase"));
+		}
+	}
+
+	@Test
+	public void testBytecode() throws IOException {
+		Map<String, byte[]> classes = compile();
+
+		try (JarSchemaReader reader = open(classes)) {
+			assertArrayEquals(classes.get(PREFIX + "PacketPlayOutBase"), reader.getBytecode(PacketFixtures.PACKAGE + ".PacketPlayOutBase"));
+			assertNull(reader.getBytecode(PREFIX + "PacketPlayOutMissing"));
+			assertTrue(reader.isPacket(PREFIX + "PacketPlayOutBase"));
+			assertFalse(reader.isPacket(PREFIX + "PacketDataSerializer"));
+		}
+	}
+
+	@Test
+	public void testSkipsClassesThatAreNotPackets() throws IOException {
+		try (JarSchemaReader reader = open(compile())) {
+			assertNull(reader.getSchema(PREFIX + "PacketDataSerializer"));
+			assertNull(reader.getSchema(PREFIX + "PacketListenerPlayOut"));
+			assertNull(reader.getSchema(PREFIX + "Packet"));
+		}
+	}
+
+	@Test
+	public void testInvalidClassOnlyFailsItself() throws IOException {
+		Map<String, byte[]> classes = compile();
+		classes.put(PREFIX + "PacketPlayOutBroken", "Not a class".getBytes(StandardCharsets.UTF_8));
+
+		try (JarSchemaReader reader = open(classes)) {
+			assertNotNull(reader.getSchema(PREFIX + "PacketPlayOutChild"));
+
+			try {
+				reader.getSchema(PREFIX + "PacketPlayOutBroken");
+				fail("Read the schema of an invalid class");
+			} catch (IOException expected) {
+				// The failure is reported for this class only
+			}
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testMissingField() throws IOException {
+		Map<String, byte[]> classes = compile();
+		classes.put(PREFIX + "PacketPlayOutChild", renameField(classes.get(PREFIX + "PacketPlayOutChild"), "time", "renamed"));
+
+		try (JarSchemaReader reader = open(classes)) {
+			reader.getSchema(PREFIX + "PacketPlayOutChild");
+		}
+	}
+
+	private Map<String, byte[]> compile() throws IOException {
+		return PacketFixtures.compile(folder.newFolder("classes"), false);
+	}
+
+	private JarSchemaReader open(Map<String, byte[]> classes) throws IOException {
+		File file = new File(folder.getRoot(), "server.jar");
+
+		try (JarOutputStream output = new JarOutputStream(new FileOutputStream(file))) {
+			for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+				output.putNextEntry(new JarEntry(entry.getKey() + ".class"));
+				output.write(entry.getValue());
+				output.closeEntry();
+			}
+		}
+		return new JarSchemaReader(file);
+	}
+
+	/**
+	 * Rename the declaration of a field, but not the instructions that access it.
+	 */
+	private static byte[] renameField(byte[] bytecode, String from, String to) {
+		ClassWriter writer = new ClassWriter(0);
+
+		new ClassReader(bytecode).accept(new ClassVisitor(Opcodes.ASM9, writer) {
+			@Override
+			public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+				return super.visitField(access, name.equals(from) ? to : name, descriptor, signature, value);
+			}
+		}, 0);
+		return writer.toByteArray();
+	}
+}
@@ -0,0 +1,108 @@
+/*
+  Copyright (C) dmulloy2 <http://dmulloy2.net>
+  Copyright (C) Kristian S. Strangeland
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in
+  all copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+  THE SOFTWARE.
+ */
+package com.comphenix.wrappit.minecraft;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.analysis.AnalyzerException;
+
+import com.comphenix.wrappit.minecraft.NetworkOrderAnalyzer.WriteStep;
+
+import static com.comphenix.wrappit.minecraft.PacketFixtures.PREFIX;
+import static org.junit.Assert.*;
+
+public class NetworkOrderAnalyzerTest {
+	private static final List<String> PACKETS = Arrays.asList("PacketPlayOutBase", "PacketPlayOutChild",
+			"PacketPlayOutSameLine", "PacketPlayOutReordered", "PacketPlayOutArrays", "PacketPlayOutCustom");
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testSameLine() throws Exception {
+		assertEquals(Arrays.asList(new WriteStep("x", WireType.VARINT), new WriteStep("y", WireType.VARINT),
+				new WriteStep("flag", WireType.BOOLEAN), new WriteStep("name", WireType.STRING)),
+				analyze(compile(true), "PacketPlayOutSameLine"));
+	}
+
+	@Test
+	public void testReorderedLoads() throws Exception {
+		assertEquals(Arrays.asList(new WriteStep("second", WireType.VARINT), new WriteStep("first", WireType.VARINT)),
+				analyze(compile(true), "PacketPlayOutReordered"));
+	}
+
+	@Test
+	public void testWithoutDebugInfo() throws Exception {
+		Map<String, byte[]> debug = compile(true);
+		Map<String, byte[]> plain = compile(false);
+
+		for (String packet : PACKETS) {
+			assertEquals(packet, analyze(debug, packet), analyze(plain, packet));
+		}
+	}
+
+	@Test
+	public void testLengthPrefix() throws Exception {
+		assertEquals(Arrays.asList(new WriteStep("ids", WireType.VARINT_ARRAY), new WriteStep("names", WireType.STRING),
+				new WriteStep("direct", WireType.VARINT_ARRAY)),
+				analyze(compile(true), "PacketPlayOutArrays"));
+	}
+
+	@Test
+	public void testSuperCall() throws Exception {
+		List<WriteStep> steps = analyze(compile(true), "PacketPlayOutChild");
+
+		assertEquals(2, steps.size());
+		assertTrue(steps.get(0).isSuperCall());
+		assertEquals(new WriteStep("time", WireType.LONG), steps.get(1));
+	}
+
+	@Test
+	public void testCustom() throws Exception {
+		assertEquals(Arrays.asList(new WriteStep("first", WireType.CUSTOM), new WriteStep("second", WireType.CUSTOM)),
+				analyze(compile(true), "PacketPlayOutCustom"));
+	}
+
+	@Test
+	public void testNoWriteMethod() throws Exception {
+		assertEquals(0, analyze(compile(true), "CustomData").size());
+	}
+
+	private Map<String, byte[]> compile(boolean debug) throws IOException {
+		return PacketFixtures.compile(folder.newFolder(), debug);
+	}
+
+	private static List<WriteStep> analyze(Map<String, byte[]> classes, String className) throws AnalyzerException {
+		ClassNode node = new ClassNode();
+		new ClassReader(classes.get(PREFIX + className)).accept(node, 0);
+		return new NetworkOrderAnalyzer(node).analyze();
+	}
+}
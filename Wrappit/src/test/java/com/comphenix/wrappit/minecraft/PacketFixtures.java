@@ -0,0 +1,190 @@
+/*
+  Copyright (C) dmulloy2 <http://dmulloy2.net>
+  Copyright (C) Kristian S. Strangeland
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in
+  all copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+  THE SOFTWARE.
+ */
+package com.comphenix.wrappit.minecraft;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import org.junit.Assume;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Small packet classes in the style of the server, compiled from source for the bytecode tests.
+ */
+final class PacketFixtures {
+	static final String PACKAGE = "net.minecraft.server.fixture";
+	static final String PREFIX = PACKAGE.replace('.', '/') + "/";
+
+	private static final Map<String, String> SOURCES = new LinkedHashMap<>();
+
+	static {
+		add("Packet",
+				"public interface Packet<T> {\n" +
+				"    void b(PacketDataSerializer serializer);\n" +
+				"}\n");
+		add("PacketListenerPlayOut",
+				"public interface PacketListenerPlayOut {\n" +
+				"}\n");
+		add("PacketDataSerializer",
+				"public class PacketDataSerializer {\n" +
+				"    public PacketDataSerializer d(int value) { return this; }\n" +
+				"    public PacketDataSerializer a(String value) { return this; }\n" +
+				"    public PacketDataSerializer a(int[] value) { return this; }\n" +
+				"    public PacketDataSerializer a(CustomData value) { return this; }\n" +
+				"    public PacketDataSerializer writeBoolean(boolean value) { return this; }\n" +
+				"    public PacketDataSerializer writeLong(long value) { return this; }\n" +
+				"}\n");
+		add("PacketPlayOutBase",
+				"public class PacketPlayOutBase implements Packet<PacketListenerPlayOut> {\n" +
+				"    private int id;\n" +
+				"    public void b(PacketDataSerializer serializer) {\n" +
+				"        serializer.d(this.id);\n" +
+				"    }\n" +
+				"}\n");
+		add("PacketPlayOutChild",
+				"public class PacketPlayOutChild extends PacketPlayOutBase {\n" +
+				"    private long time;\n" +
+				"    public void b(PacketDataSerializer serializer) {\n" +
+				"        super.b(serializer);\n" +
+				"        serializer.writeLong(this.time);\n" +
+				"    }\n" +
+				"}\n");
+		add("PacketPlayOutSameLine",
+				"public class PacketPlayOutSameLine implements Packet<PacketListenerPlayOut> {\n" +
+				"    private int x;\n" +
+				"    private int y;\n" +
+				"    private boolean flag;\n" +
+				"    private String name;\n" +
+				"    public void b(PacketDataSerializer serializer) {\n" +
+				"        serializer.d(this.x).d(this.y); serializer.writeBoolean(this.flag); serializer.a(this.name);\n" +
+				"    }\n" +
+				"}\n");
+		add("PacketPlayOutReordered",
+				"public class PacketPlayOutReordered implements Packet<PacketListenerPlayOut> {\n" +
+				"    private int first;\n" +
+				"    private int second;\n" +
+				"    public void b(PacketDataSerializer serializer) {\n" +
+				"        int later = this.first;\n" +
+				"        int earlier = this.second;\n" +
+				"        serializer.d(earlier);\n" +
+				"        serializer.d(later);\n" +
+				"    }\n" +
+				"}\n");
+		add("PacketPlayOutArrays",
+				"public class PacketPlayOutArrays implements Packet<PacketListenerPlayOut> {\n" +
+				"    private int[] ids;\n" +
+				"    private java.util.List<String> names;\n" +
+				"    private int[] direct;\n" +
+				"    public void b(PacketDataSerializer serializer) {\n" +
+				"        serializer.d(this.ids.length);\n" +
+				"        for (int id : this.ids) {\n" +
+				"            serializer.d(id);\n" +
+				"        }\n" +
+				"        serializer.d(this.names.size());\n" +
+				"        for (String name : this.names) {\n" +
+				"            serializer.a(name);\n" +
+				"        }\n" +
+				"        serializer.a(this.direct);\n" +
+				"    }\n" +
+				"}\n");
+		add("CustomData",
+				"public class CustomData {\n" +
+				"    public void write(PacketDataSerializer serializer) { }\n" +
+				"}\n");
+		add("PacketPlayOutCustom",
+				"public class PacketPlayOutCustom implements Packet<PacketListenerPlayOut> {\n" +
+				"    private CustomData first;\n" +
+				"    private CustomData second;\n" +
+				"    public void b(PacketDataSerializer serializer) {\n" +
+				"        this.first.write(serializer);\n" +
+				"        serializer.a(this.second);\n" +
+				"    }\n" +
+				"}\n");
+	}
+
+	private PacketFixtures() {
+		// Not constructable
+	}
+
+	private static void add(String className, String body) {
+		SOURCES.put(className, "package " + PACKAGE + ";\n" + body);
+	}
+
+	/**
+	 * Compile every fixture.
+	 * @param output - the folder that receives the class files.
+	 * @param debug - whether to include line numbers and local variable names.
+	 * @return The bytecode of every class, by internal name.
+	 * @throws IOException If the class files cannot be read.
+	 */
+	static Map<String, byte[]> compile(File output, boolean debug) throws IOException {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		Assume.assumeNotNull(compiler);
+
+		List<JavaFileObject> sources = new ArrayList<>();
+		for (Map.Entry<String, String> entry : SOURCES.entrySet()) {
+			sources.add(new Source(entry.getKey(), entry.getValue()));
+		}
+
+		List<String> options = Arrays.asList("-d", output.getPath(), debug ? "-g" : "-g:none");
+		assertTrue("Unable to compile the fixtures", compiler.getTask(null, null, null, options, null, sources).call());
+
+		Map<String, byte[]> result = new LinkedHashMap<>();
+		try (Stream<Path> files = Files.walk(output.toPath())) {
+			for (Path file : (Iterable<Path>) files.filter(path -> path.toString().endsWith(".class"))::iterator) {
+				String name = output.toPath().relativize(file).toString().replace(File.separatorChar, '/');
+				result.put(name.substring(0, name.length() - ".class".length()), Files.readAllBytes(file));
+			}
+		}
+		return result;
+	}
+
+	private static class Source extends SimpleJavaFileObject {
+		private final String code;
+
+		Source(String className, String code) {
+			super(URI.create("string:///" + PREFIX + className + Kind.SOURCE.extension), Kind.SOURCE);
+			this.code = code;
+		}
+
+		@Override
+		public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+			return code;
+		}
+	}
+}
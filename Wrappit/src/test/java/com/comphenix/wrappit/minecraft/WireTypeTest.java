@@ -0,0 +1,64 @@
+/*
+  Copyright (C) dmulloy2 <http://dmulloy2.net>
+  Copyright (C) Kristian S. Strangeland
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in
+  all copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+  THE SOFTWARE.
+ */
+package com.comphenix.wrappit.minecraft;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class WireTypeTest {
+	@Test
+	public void testSerializerCall() {
+		assertEquals(WireType.LONG, WireType.fromSerializerCall("writeLong", "(J)Lio/netty/buffer/ByteBuf;"));
+		assertEquals(WireType.VARINT, WireType.fromSerializerCall("d", "(I)Lnet/minecraft/server/PacketDataSerializer;"));
+		assertEquals(WireType.STRING, WireType.fromSerializerCall("a", "(Ljava/lang/String;)Lnet/minecraft/server/PacketDataSerializer;"));
+		assertEquals(WireType.POSITION, WireType.fromSerializerCall("a", "(Lnet/minecraft/server/BlockPosition;)Lnet/minecraft/server/PacketDataSerializer;"));
+		assertEquals(WireType.CUSTOM, WireType.fromSerializerCall("a", "(Lnet/minecraft/server/Vec3D;)Lnet/minecraft/server/PacketDataSerializer;"));
+		assertEquals(WireType.CUSTOM, WireType.fromSerializerCall("e", "()I"));
+	}
+
+	@Test
+	public void testWikiType() {
+		assertEquals(WireType.VARINT, WireType.fromWikiType("VarInt"));
+		assertEquals(WireType.STRING, WireType.fromWikiType("String (16)"));
+		assertEquals(WireType.BYTE, WireType.fromWikiType("Unsigned Byte"));
+		assertEquals(WireType.BYTE, WireType.fromWikiType("Angle"));
+		assertEquals(WireType.COMPONENT, WireType.fromWikiType("Chat"));
+		assertEquals(WireType.NBT, WireType.fromWikiType("NBT Tag"));
+	}
+
+	@Test
+	public void testWikiArray() {
+		assertEquals(WireType.BYTE_ARRAY, WireType.fromWikiType("Byte Array"));
+		assertEquals(WireType.VARINT_ARRAY, WireType.fromWikiType("Array of VarInt"));
+		assertEquals(WireType.LONG_ARRAY, WireType.fromWikiType("Array of Long"));
+		assertEquals(WireType.STRING, WireType.fromWikiType("Array of String (32767)"));
+	}
+
+	@Test
+	public void testUnknownWikiType() {
+		assertNull(WireType.fromWikiType("VarInt Enum"));
+		assertNull(WireType.fromWikiType("Optional Chat"));
+		assertNull(WireType.fromWikiType("Entity Metadata"));
+	}
+}
@@ -0,0 +1,146 @@
+/*
+  Copyright (C) dmulloy2 <http://dmulloy2.net>
+  Copyright (C) Kristian S. Strangeland
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in
+  all copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+  THE SOFTWARE.
+ */
+package com.comphenix.wrappit.utils;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CaseFormatingTest {
+	private static final String ALPHABET = "aZq_9 -.é\tQxİß(";
+	
+	@Test
+	public void testCamelCase() {
+		assertEquals("EntityId", CaseFormating.toCamelCase("Entity ID"));
+		assertEquals("OnGround", CaseFormating.toCamelCase("on ground"));
+		assertEquals("Velocity_x", CaseFormating.toCamelCase("velocity_X"));
+		assertEquals("Entity Type ", CaseFormating.toCamelCase("entity-type", " "));
+	}
+	
+	@Test
+	public void testOnlySeparators() {
+		assertEquals("", CaseFormating.toCamelCase(" - "));
+	}
+	
+	@Test(expected = StringIndexOutOfBoundsException.class)
+	public void testLeadingSeparator() {
+		CaseFormating.toCamelCase(" Entity ID");
+	}
+	
+	@Test(expected = StringIndexOutOfBoundsException.class)
+	public void testEmpty() {
+		CaseFormating.toCamelCase("");
+	}
+	
+	@Test
+	public void testSameResultAsSplit() {
+		Random random = new Random(0);
+		
+		for (int i = 0; i < 50000; i++) {
+			StringBuilder text = new StringBuilder();
+			int length = random.nextInt(10);
+			
+			for (int j = 0; j < length; j++) {
+				text.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+			}
+			
+			for (String delimiter : new String[] { "", " ", "_" }) {
+				assertEquals(text + " with '" + delimiter + "'", splitCamelCase(text.toString(), delimiter),
+						camelCase(text.toString(), delimiter));
+			}
+			assertEquals(text.toString(), splitCamelCase(text.toString(), ""), camelCase(text.toString(), null));
+		}
+	}
+	
+	@Test
+	public void testLowerCaseRange() {
+		String text = "Entity ID";
+		
+		assertSame(text, CaseFormating.toLowerCaseRange(text, 1, 3));
+		assertEquals("entity ID", CaseFormating.toLowerCaseRange(text, 0, 1));
+		assertEquals("entity id", CaseFormating.toLowerCaseRange(text, -5, 50));
+		
+		Random random = new Random(0);
+		
+		for (int i = 0; i < 50000; i++) {
+			StringBuilder builder = new StringBuilder();
+			int length = random.nextInt(8);
+			
+			for (int j = 0; j < length; j++) {
+				builder.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+			}
+			int min = random.nextInt(10) - 2;
+			int max = random.nextInt(10) - 2;
+			
+			assertEquals(builder + " " + min + " " + max, characterLowerCaseRange(builder.toString(), min, max),
+					CaseFormating.toLowerCaseRange(builder.toString(), min, max));
+		}
+	}
+	
+	/**
+	 * Convert the text with CaseFormating, or retrieve the exception it throws.
+	 * @param delimiter - the delimiter, or NULL to use the cached conversion.
+	 */
+	private static String camelCase(String text, String delimiter) {
+		try {
+			return delimiter != null ? CaseFormating.toCamelCase(text, delimiter) : CaseFormating.toCamelCase(text);
+		} catch (RuntimeException e) {
+			return e.getClass().getName();
+		}
+	}
+	
+	/**
+	 * The original implementation, based on a regular expression.
+	 */
+	private static String splitCamelCase(String text, String delimiter) {
+		try {
+			StringBuilder output = new StringBuilder();
+			
+			for (String word : text.split("\\W+")) {
+				output.append(word.substring(0, 1).toUpperCase());
+				output.append(word.substring(1).toLowerCase());
+				output.append(delimiter);
+			}
+			return output.toString();
+		} catch (RuntimeException e) {
+			return e.getClass().getName();
+		}
+	}
+	
+	/**
+	 * The original implementation, which copies one character at a time.
+	 */
+	private static String characterLowerCaseRange(String text, int min, int max) {
+		StringBuilder result = new StringBuilder();
+		
+		for (int i = 0; i < text.length(); i++) {
+			if (min <= i && i < max)
+				result.append(Character.toLowerCase(text.charAt(i)));
+			else
+				result.append(text.charAt(i));
+		}
+		return result.toString();
+	}
+}
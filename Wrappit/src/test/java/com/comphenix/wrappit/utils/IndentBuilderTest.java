@@ -0,0 +1,135 @@
+/*
+  Copyright (C) dmulloy2 <http://dmulloy2.net>
+  Copyright (C) Kristian S. Strangeland
+
+  Permission is hereby granted, free of charge, to any person obtaining a copy
+  of this software and associated documentation files (the "Software"), to deal
+  in the Software without restriction, including without limitation the rights
+  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+  copies of the Software, and to permit persons to whom the Software is
+  furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in
+  all copies or substantial portions of the Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+  THE SOFTWARE.
+ */
+package com.comphenix.wrappit.utils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class IndentBuilderTest {
+	private static final String[] FRAGMENTS = { "", "a", "public void test() {", "}", "\n", "\r\n", "x\ny", "\n\n", "line\r\n\tnext", " ", "// comment" };
+	
+	@Test
+	public void testIndent() throws IOException {
+		StringBuilder output = new StringBuilder();
+		IndentBuilder indent = new IndentBuilder(output, 1);
+		
+		indent.appendLine("class {");
+		indent.incrementIndent().appendLine("int a;\nint b;");
+		indent.append("}");
+		
+		String newline = IndentBuilder.NEWLN;
+		assertEquals("    class {" + newline + "        int a;\n        int b;" + newline + "    }", output.toString());
+	}
+	
+	@Test
+	public void testIncrementIndentIsReused() throws IOException {
+		StringBuilder output = new StringBuilder();
+		IndentBuilder indent = new IndentBuilder(output, 0);
+		IndentBuilder child = indent.incrementIndent();
+		
+		child.append("partial");
+		
+		// Starts a new line, just like a new builder would
+		assertSame(child, indent.incrementIndent());
+		child.append("next");
+		assertEquals("    partial    next", output.toString());
+	}
+	
+	/**
+	 * Append random text through random builders, and compare the output with the original implementation.
+	 * <p>
+	 * Only one builder may be in the middle of a line, so a line is always finished before another builder is used.
+	 */
+	@Test
+	public void testSameOutputAsReference() throws IOException {
+		Random random = new Random(0);
+		
+		for (int run = 0; run < 2000; run++) {
+			String indentText = random.nextBoolean() ? "    " : "\t";
+			StringBuilder actualOutput = new StringBuilder();
+			StringBuilder expectedOutput = new StringBuilder();
+			
+			List<IndentBuilder> actual = new ArrayList<>();
+			List<ReferenceIndentBuilder> expected = new ArrayList<>();
+			int level = random.nextInt(3);
+			actual.add(new IndentBuilder(actualOutput, level, indentText));
+			expected.add(new ReferenceIndentBuilder(expectedOutput, level, indentText));
+			
+			int current = 0;
+			boolean midLine = false;
+			
+			for (int step = 0; step < 50; step++) {
+				int next = random.nextInt(actual.size());
+				
+				int operation = random.nextInt(6);
+				
+				// Incrementing the indent starts a new line in the child
+				if (midLine && (next != current || operation == 0)) {
+					actual.get(current).append(IndentBuilder.NEWLN);
+					expected.get(current).append(IndentBuilder.NEWLN);
+				}
+				current = next;
+				String text = FRAGMENTS[random.nextInt(FRAGMENTS.length)];
+				
+				switch (operation) {
+					case 0 -> {
+						actual.add(actual.get(current).incrementIndent());
+						expected.add(expected.get(current).incrementIndent());
+					}
+					case 1 -> {
+						actual.get(current).appendLine(text);
+						expected.get(current).appendLine(text);
+					}
+					case 2 -> {
+						// Not a String, so the line is searched character by character
+						actual.get(current).append(new StringBuilder(text));
+						expected.get(current).append(new StringBuilder(text));
+					}
+					case 3 -> {
+						int start = text.isEmpty() ? 0 : random.nextInt(text.length());
+						int end = start + random.nextInt(text.length() - start + 1);
+						actual.get(current).append(text, start, end);
+						expected.get(current).append(text, start, end);
+					}
+					case 4 -> {
+						char c = text.isEmpty() ? '\n' : text.charAt(0);
+						actual.get(current).append(c);
+						expected.get(current).append(c);
+					}
+					default -> {
+						actual.get(current).append(text);
+						expected.get(current).append(text);
+					}
+				}
+				midLine = expectedOutput.length() > 0 && expectedOutput.charAt(expectedOutput.length() - 1) != '\n';
+			}
+			assertEquals("Run " + run, expectedOutput.toString(), actualOutput.toString());
+		}
+	}
+}